@@ -3,12 +3,17 @@ package com.pms.validation.config;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.KieFileSystem;
-import org.kie.api.builder.KieModule;
 import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
 import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.KieSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 
 import org.apache.commons.pool2.ObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPool;
@@ -17,20 +22,64 @@ import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 
-import java.nio.charset.StandardCharsets;
+import com.pms.validation.service.metrics.RuleMetrics;
+import com.pms.validation.service.metrics.RuleMetricsListener;
+import com.pms.validation.service.rules.RuleSetManager;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// Not needed when app.validation.engine=compiled
 @Configuration
+@ConditionalOnProperty(name = "app.validation.engine", havingValue = "drools", matchIfMissing = true)
 public class DroolsConfig {
 
-    private static final String RULES_LOCATION = "rules/trade-validation.drl";
+    public static final String RULES_LOCATION = "rules/trade-validation.drl";
+
+    private static final String RULES_GROUP_ID = "com.pms.validation";
+    private static final String RULES_ARTIFACT_ID = "trade-validation-rules";
+
+    /**
+     * Active rule set and its session pool. Rules come from app.rules.location
+     * (a directory of .drl files, hot reloaded) or from the classpath when unset.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RuleSetManager ruleSetManager(@Value("${app.rules.location:}") String rulesLocation,
+            RuleMetrics ruleMetrics) {
+        return new RuleSetManager(rulesLocation, ruleMetrics);
+    }
 
     @Bean
-    public KieContainer kieContainer() {
+    public RuleMetrics ruleMetrics(MeterRegistry meterRegistry,
+            @Value("${app.rules.metrics.enabled:true}") boolean enabled,
+            @Value("${app.rules.metrics.sample-every:100}") int sampleEvery) {
+        return enabled ? new RuleMetrics(meterRegistry, sampleEvery) : RuleMetrics.disabled();
+    }
+
+    public static Map<String, byte[]> classpathRules() {
+        try {
+            ClassPathResource resource = new ClassPathResource(RULES_LOCATION);
+            return Map.of(resource.getFilename(), resource.getContentAsByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read " + RULES_LOCATION, ex);
+        }
+    }
+
+    /**
+     * Compile DRL files into a new KieContainer. Each rule version gets its own
+     * ReleaseId so several versions can be live while old sessions drain.
+     */
+    public static KieContainer kieContainer(String version, Map<String, byte[]> drlFiles) {
         try {
             KieServices ks = KieServices.Factory.get();
-            KieFileSystem kfs = ks.newKieFileSystem();
+            ReleaseId releaseId = ks.newReleaseId(RULES_GROUP_ID, RULES_ARTIFACT_ID, version);
 
-            kfs.write(ks.getResources().newClassPathResource(RULES_LOCATION, StandardCharsets.UTF_8.name()));
+            KieFileSystem kfs = ks.newKieFileSystem();
+            kfs.generateAndWritePomXML(releaseId);
+            drlFiles.forEach((name, content) -> kfs.write("src/main/resources/rules/" + name, content));
 
             KieBuilder kb = ks.newKieBuilder(kfs);
             kb.buildAll();
@@ -40,27 +89,36 @@ public class DroolsConfig {
                         .filter(m -> m.getLevel() == Message.Level.ERROR)
                         .map(Message::toString)
                         .reduce("", (a, b) -> a + "\n" + b);
+                ks.getRepository().removeKieModule(releaseId);
                 throw new RuntimeException("DRL compilation errors:\n" + errors);
             }
 
-            KieModule kModule = kb.getKieModule();
-            return ks.newKieContainer(kModule.getReleaseId());
+            return ks.newKieContainer(releaseId);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to initialize Drools rules engine: " + ex.getMessage(), ex);
         }
     }
 
-    @Bean
-    public ObjectPool<KieSession> kieSessionPool(KieContainer kieContainer) {
+    public static ObjectPool<KieSession> kieSessionPool(KieContainer kieContainer, RuleMetrics ruleMetrics) {
 
         GenericObjectPoolConfig<KieSession> config = new GenericObjectPoolConfig<>();
         config.setJmxEnabled(false);
+        // Enough sessions for one per validation worker without blocking
+        config.setMaxTotal(Math.max(GenericObjectPoolConfig.DEFAULT_MAX_TOTAL,
+                Runtime.getRuntime().availableProcessors()));
 
         return new GenericObjectPool<>(new BasePooledObjectFactory<>() {
 
             @Override
             public KieSession create() {
-                return kieContainer.newKieSession();
+                KieSession session = kieContainer.newKieSession();
+                if (ruleMetrics.isEnabled()) {
+                    RuleMetricsListener listener = new RuleMetricsListener(ruleMetrics);
+                    // Implements both listener types, the casts pick the overload
+                    session.addEventListener((AgendaEventListener) listener);
+                    session.addEventListener((RuleRuntimeEventListener) listener);
+                }
+                return session;
             }
 
             @Override
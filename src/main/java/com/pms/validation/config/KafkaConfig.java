@@ -1,21 +1,29 @@
 package com.pms.validation.config;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
@@ -25,6 +33,7 @@ import org.springframework.kafka.core.ProducerFactory;
 
 import com.pms.validation.proto.TradeEventProto;
 import com.pms.validation.proto.InvalidTradeEventProto;
+import com.pms.validation.service.processing.ValidationBatchProcessor;
 import com.google.protobuf.MessageLite;
 
 import io.confluent.kafka.serializers.protobuf.KafkaProtobufDeserializer;
@@ -50,6 +59,14 @@ public class KafkaConfig {
 	@Value("${schema.registry.url}")
 	private String schemaRegistryUrl;
 
+	// outbox: results go through the DB outbox, transactional: straight to Kafka
+	// in one transaction with the consumed offsets
+	@Value("${app.pipeline.mode:outbox}")
+	private String pipelineMode;
+
+	@Value("${app.pipeline.transaction-id-prefix:validation-tx-}")
+	private String transactionIdPrefix;
+
 	@Bean
 	NewTopic validationTopic() {
 		return TopicBuilder.name(outgoingValidTradesTopic)
@@ -150,6 +167,71 @@ public class KafkaConfig {
 		return new KafkaTemplate<>(invalidTradeProducerFactory());
 	}
 
+	// Outbox dispatch: the rows carry their serialized record value (payload column),
+	// the producer passes the bytes through
+	@Bean
+	ProducerFactory<String, byte[]> outboxProducerFactory() {
+
+		Map<String, Object> props = new HashMap<>();
+
+		props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
+		props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+		props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+		// Retry configuration
+		props.put(ProducerConfig.RETRIES_CONFIG, 5);
+		props.put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG, 1000);
+		props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 30000);
+		props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 15000);
+
+		// Safe producer
+		props.put(ProducerConfig.ACKS_CONFIG, "all");
+		props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+		// The outbox dispatcher pipelines a whole batch of sends. Idempotence keeps the
+		// order within a partition for up to 5 in-flight requests, linger lets the
+		// records of a batch share produce requests
+		props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+		props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+
+		return new DefaultKafkaProducerFactory<>(props);
+	}
+
+	@Bean
+	KafkaTemplate<String, byte[]> outboxKafkaTemplate() {
+		return new KafkaTemplate<>(outboxProducerFactory());
+	}
+
+	// app.pipeline.mode=transactional: results and consumed offsets in one Kafka
+	// transaction, see TransactionalResultPublisher
+	@Bean
+	@ConditionalOnProperty(name = "app.pipeline.mode", havingValue = "transactional")
+	ProducerFactory<String, byte[]> transactionalProducerFactory() {
+
+		Map<String, Object> props = new HashMap<>();
+
+		props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
+		props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+		props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+		props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 30000);
+		props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 15000);
+		props.put(ProducerConfig.ACKS_CONFIG, "all");
+		props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+		props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+
+		DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(props);
+		// Unique per pod: producers of another pod with the same transactional.id would fence these
+		factory.setTransactionIdPrefix(transactionIdPrefix);
+		return factory;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "app.pipeline.mode", havingValue = "transactional")
+	KafkaTemplate<String, byte[]> transactionalKafkaTemplate() {
+		return new KafkaTemplate<>(transactionalProducerFactory());
+	}
+
 	// Generic KafkaTemplate for RTTM Client to send any MessageLite (protobuf
 	// messages)
 	@Bean
@@ -179,23 +261,19 @@ public class KafkaConfig {
 		return new KafkaTemplate<>(messageLiteProducerFactory());
 	}
 
-	// Bean for metrics consumer - used by QueueMetricsService to query offsets
-	// This consumer only queries metadata (offsets), never actually consumes
-	// messages
-	@Bean
-	KafkaConsumer<String, String> metricsConsumer() {
+	// Admin client of QueueMetricsService, reads topic and consumer group offsets
+	// in bulk without joining the group
+	@Bean(destroyMethod = "close")
+	AdminClient metricsAdminClient() {
 		Properties props = new Properties();
-		props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
-		props.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupId);
-		props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-		props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-		props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
-		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // Monitoring uses current state
-		return new KafkaConsumer<>(props);
+		props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
+		props.put(AdminClientConfig.CLIENT_ID_CONFIG, consumerGroupId + "-metrics");
+		return AdminClient.create(props);
 	}
 
 	@Bean(name = "protobufKafkaListenerContainerFactory")
-	public ConcurrentKafkaListenerContainerFactory<String, TradeEventProto> protobufKafkaListenerContainerFactory() {
+	public ConcurrentKafkaListenerContainerFactory<String, TradeEventProto> protobufKafkaListenerContainerFactory(
+			ObjectProvider<ValidationBatchProcessor> batchProcessor) {
 
 		Map<String, Object> props = new HashMap<>();
 		props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
@@ -215,6 +293,12 @@ public class KafkaConfig {
 		props.put("specific.protobuf.value.type",
 				TradeEventProto.class.getName());
 
+		boolean transactional = "transactional".equalsIgnoreCase(pipelineMode);
+		if (transactional) {
+			// Skip records of aborted upstream transactions
+			props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+		}
+
 		DefaultKafkaConsumerFactory<String, TradeEventProto> consumerFactory = new DefaultKafkaConsumerFactory<>(
 				props);
 
@@ -228,6 +312,24 @@ public class KafkaConfig {
 		// Use manual ack mode so listener can acknowledge after successful processing
 		factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
 
+		if (transactional) {
+			// Offsets are committed in the Kafka transactions of the flushes, the polls are
+			// never acknowledged. Buffered trades of revoked partitions are dropped before
+			// the rebalance completes, the new owner reads them again from the committed offsets
+			factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+				@Override
+				public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+						Collection<TopicPartition> partitions) {
+					batchProcessor.getObject().discardRevoked(partitions);
+				}
+
+				@Override
+				public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+					batchProcessor.getObject().discardRevoked(partitions);
+				}
+			});
+		}
+
 		return factory;
 	}
 
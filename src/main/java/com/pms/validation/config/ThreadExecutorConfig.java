@@ -1,18 +1,24 @@
 package com.pms.validation.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import com.pms.validation.service.processing.ValidationWorker;
+
 @Configuration
 public class ThreadExecutorConfig {
     
+    // One thread per validation worker; each worker has at most one flush queued
+    // or running, so the queue never holds more than one task per worker
     @Bean(name = "validationBatchExecutor")
-    public ThreadPoolTaskExecutor validationBatchExecutor() {
+    public ThreadPoolTaskExecutor validationBatchExecutor(@Value("${app.validation.workers:0}") int workers) {
+        int workerCount = ValidationWorker.resolveWorkerCount(workers);
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(1);   
-        executor.setMaxPoolSize(1);
-        executor.setQueueCapacity(1); 
+        executor.setCorePoolSize(workerCount);
+        executor.setMaxPoolSize(workerCount);
+        executor.setQueueCapacity(workerCount);
         executor.setThreadNamePrefix("validation-batch-exec-");
         executor.initialize();
         return executor;
@@ -1,12 +1,27 @@
 package com.pms.validation.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 public class ThreadSchedulerConfig {
-    
+
+    // Runs the @Scheduled jobs. Without a bean of this name Spring falls back to a single
+    // thread, where a long purge or partition run would hold back the lease reaper and the
+    // reference data refresh
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("validation-scheduled-");
+        scheduler.setPoolSize(poolSize);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+        return scheduler;
+    }
+
     @Bean(name = "validationBatchFlushScheduler")
     public ThreadPoolTaskScheduler validationBatchFlushScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
@@ -1,7 +1,13 @@
 
 -- 1. invalid_trades
+-- ids come from sequences incremented by 50, Hibernate hands them out with the
+-- pooled-lo optimizer (allocationSize = 50) so inserts can be batched
+CREATE SEQUENCE validation_invalid_trades_seq INCREMENT BY 50;
+
+-- Range partitioned by day of created_at, OutboxPartitionMaintainer creates the
+-- upcoming partitions and retires old ones; the default partition is a safety net
 CREATE TABLE validation_invalid_trades (
-    invalid_trade_outbox_id BIGSERIAL PRIMARY KEY,
+    invalid_trade_outbox_id BIGINT NOT NULL DEFAULT nextval('validation_invalid_trades_seq'),
 
     event_id UUID,
     trade_id UUID,
@@ -19,10 +25,39 @@ CREATE TABLE validation_invalid_trades (
     sent_status VARCHAR(255),
     validation_status VARCHAR(255),
     validation_errors TEXT,
+    rule_version VARCHAR(64),
+    -- record value as sent to Kafka, written at validation time
+    payload BYTEA,
+    lease_expires_at TIMESTAMP,
 
-    created_at TIMESTAMP,
-    updated_at TIMESTAMP
-);
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+
+    PRIMARY KEY (invalid_trade_outbox_id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE validation_invalid_trades_default PARTITION OF validation_invalid_trades DEFAULT;
+
+-- Today and the next app.outbox.partitions.premake-days (7), so no rows land in
+-- the default partition before OutboxPartitionMaintainer first runs
+DO $$
+DECLARE
+  d DATE;
+BEGIN
+  FOR d IN SELECT generate_series(current_date, current_date + 7, interval '1 day')::date LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF validation_invalid_trades FOR VALUES FROM (%L) TO (%L)',
+                   'validation_invalid_trades_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+  END LOOP;
+END $$;
+
+CREATE INDEX idx_validation_invalid_trades_in_flight
+    ON validation_invalid_trades (portfolio_id, lease_expires_at) WHERE sent_status = 'IN_FLIGHT';
+
+CREATE INDEX idx_validation_invalid_trades_pending_created_at
+    ON validation_invalid_trades (created_at) WHERE sent_status = 'PENDING';
+
+CREATE INDEX idx_validation_invalid_trades_pending_portfolio
+    ON validation_invalid_trades (portfolio_id, created_at) WHERE sent_status = 'PENDING';
 
 -- 2. processed_messages
 CREATE TABLE validation_processed_messages (
@@ -37,6 +72,9 @@ CREATE TABLE validation_processed_messages (
         UNIQUE (trade_id, consumer_group)
 );
 
+CREATE INDEX idx_validation_processed_messages_processed_at
+    ON validation_processed_messages (processed_at);
+
 -- 3. stocks
 CREATE TABLE pms_stocks (
     stock_id BIGSERIAL PRIMARY KEY,
@@ -49,8 +87,10 @@ CREATE TABLE pms_stocks (
 );
 
 -- 4. validation_outbox
+CREATE SEQUENCE validation_outbox_seq INCREMENT BY 50;
+
 CREATE TABLE validation_outbox (
-    validation_outbox_id BIGSERIAL PRIMARY KEY,
+    validation_outbox_id BIGINT NOT NULL DEFAULT nextval('validation_outbox_seq'),
 
     event_id UUID NOT NULL,
     trade_id UUID NOT NULL,
@@ -67,18 +107,89 @@ CREATE TABLE validation_outbox (
     sent_status VARCHAR(255) NOT NULL,
     validation_status VARCHAR(255) NOT NULL,
     validation_errors TEXT,
+    rule_version VARCHAR(64),
+    -- record value as sent to Kafka, written at validation time
+    payload BYTEA,
+    lease_expires_at TIMESTAMP,
 
     created_at TIMESTAMP NOT NULL,
-    updated_at TIMESTAMP NOT NULL
-);
+    updated_at TIMESTAMP NOT NULL,
+
+    PRIMARY KEY (validation_outbox_id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE validation_outbox_default PARTITION OF validation_outbox DEFAULT;
+
+-- Today and the next app.outbox.partitions.premake-days (7), so no rows land in
+-- the default partition before OutboxPartitionMaintainer first runs
+DO $$
+DECLARE
+  d DATE;
+BEGIN
+  FOR d IN SELECT generate_series(current_date, current_date + 7, interval '1 day')::date LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF validation_outbox FOR VALUES FROM (%L) TO (%L)',
+                   'validation_outbox_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+  END LOOP;
+END $$;
+
+CREATE INDEX idx_validation_outbox_in_flight
+    ON validation_outbox (portfolio_id, lease_expires_at) WHERE sent_status = 'IN_FLIGHT';
+
+CREATE INDEX idx_validation_outbox_pending_created_at
+    ON validation_outbox (created_at) WHERE sent_status = 'PENDING';
+
+CREATE INDEX idx_validation_outbox_pending_portfolio
+    ON validation_outbox (portfolio_id, created_at) WHERE sent_status = 'PENDING';
 
 -- 5. validation_dlq_entry
+CREATE SEQUENCE validation_dlq_entry_seq INCREMENT BY 50;
+
 CREATE TABLE validation_dlq_entry (
-    dlq_entry_id BIGSERIAL PRIMARY KEY,
+    dlq_entry_id BIGINT PRIMARY KEY DEFAULT nextval('validation_dlq_entry_seq'),
 
     payload BYTEA NOT NULL,
 
     error_detail TEXT,
 
-    created_at TIMESTAMP NOT NULL
+    created_at TIMESTAMP NOT NULL,
+
+    -- set when the transactional pipeline parks an incoming trade, at most one entry per trade
+    trade_id UUID
+);
+
+CREATE UNIQUE INDEX idx_validation_dlq_entry_trade_id
+    ON validation_dlq_entry (trade_id) WHERE trade_id IS NOT NULL;
+
+ALTER SEQUENCE validation_invalid_trades_seq OWNED BY validation_invalid_trades.invalid_trade_outbox_id;
+ALTER SEQUENCE validation_outbox_seq OWNED BY validation_outbox.validation_outbox_id;
+ALTER SEQUENCE validation_dlq_entry_seq OWNED BY validation_dlq_entry.dlq_entry_id;
+
+-- Outbox insert notifications, one per inserting statement on the channel named
+-- after the table (delivered at commit, LISTENed by the outbox dispatchers)
+CREATE OR REPLACE FUNCTION validation_outbox_notify() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify(TG_TABLE_NAME, '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_validation_outbox_notify
+    AFTER INSERT ON validation_outbox
+    FOR EACH STATEMENT EXECUTE FUNCTION validation_outbox_notify();
+
+CREATE TRIGGER trg_validation_invalid_trades_notify
+    AFTER INSERT ON validation_invalid_trades
+    FOR EACH STATEMENT EXECUTE FUNCTION validation_outbox_notify();
+
+-- Purge of settled rows (OutboxPurgeEngine): resume point per table, and the
+-- tables rows are moved to with app.outbox.purge.mode=archive
+CREATE TABLE validation_purge_checkpoint (
+    table_name VARCHAR(64) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    pass_started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
 );
+
+CREATE TABLE validation_outbox_archive (LIKE validation_outbox);
+CREATE TABLE validation_invalid_trades_archive (LIKE validation_invalid_trades);
+CREATE TABLE validation_dlq_entry_archive (LIKE validation_dlq_entry);
@@ -4,12 +4,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class ValidationResultDto {
     private boolean valid = true;
     private List<String> errors = new ArrayList<>();
 
+    // The trade this result belongs to; rules match on the pair so one session
+    // can evaluate a whole batch
+    private TradeDto trade;
+
+    // Version of the rule set that produced this result
+    private String ruleVersion;
+
+    public ValidationResultDto(TradeDto trade) {
+        this.trade = trade;
+    }
+
     public void addError(String msg) {
         this.valid = false;
         this.errors.add(msg);
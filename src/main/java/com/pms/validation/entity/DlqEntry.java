@@ -1,12 +1,14 @@
 package com.pms.validation.entity;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
@@ -24,7 +26,8 @@ import lombok.NoArgsConstructor;
 public class DlqEntry {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dlqEntrySeq")
+    @SequenceGenerator(name = "dlqEntrySeq", sequenceName = "validation_dlq_entry_seq", allocationSize = 50)
     @Column(name = "dlq_entry_id")
     private Long dlqEntryid;
 
@@ -37,6 +40,9 @@ public class DlqEntry {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "trade_id", nullable = true)
+    private UUID tradeId;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
@@ -13,6 +13,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
@@ -29,7 +30,8 @@ import lombok.NoArgsConstructor;
 @Table(name = "validation_invalid_trades")
 public class InvalidTradeEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invalidTradeSeq")
+    @SequenceGenerator(name = "invalidTradeSeq", sequenceName = "validation_invalid_trades_seq", allocationSize = 50)
     @Column(name = "invalid_trade_outbox_id", nullable = false)
     private Long invalidTradeOutboxId;
 
@@ -68,6 +70,15 @@ public class InvalidTradeEntity {
     @Column(name = "validation_errors")
     private String validationErrors; // Semi colon separated errors
 
+    @Column(name = "rule_version")
+    private String ruleVersion;
+
+    @Column(name = "payload")
+    private byte[] payload;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
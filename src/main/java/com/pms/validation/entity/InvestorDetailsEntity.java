@@ -1,5 +1,6 @@
 package com.pms.validation.entity;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 import jakarta.persistence.Column;
@@ -30,4 +31,9 @@ public class InvestorDetailsEntity {
     
     @Column(name = "address")
     private String address;
+
+    // Maintained by the database (default + update trigger), used as the
+    // change marker for the reference data snapshot
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
 }
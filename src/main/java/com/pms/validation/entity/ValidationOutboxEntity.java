@@ -15,6 +15,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -29,7 +30,10 @@ import lombok.NoArgsConstructor;
 @Table(name = "validation_outbox")
 public class ValidationOutboxEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // allocationSize matches INCREMENT BY 50 of the sequence, with the pooled-lo
+    // optimizer one nextval covers 50 inserts and the INSERTs can be JDBC batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "validationOutboxSeq")
+    @SequenceGenerator(name = "validationOutboxSeq", sequenceName = "validation_outbox_seq", allocationSize = 50)
     @Column(name = "validation_outbox_id")
     private Long validationOutboxId;
 
@@ -68,6 +72,18 @@ public class ValidationOutboxEntity {
     @Column(name = "validation_errors", nullable = true)
     private String validationErrors; // Semi colon separated errors
 
+    @Column(name = "rule_version")
+    private String ruleVersion;
+
+    // Record value as sent to Kafka (schema registry framing included), written at
+    // validation time so the dispatcher ships it without mapping the row again
+    @Column(name = "payload")
+    private byte[] payload;
+
+    // Set while the row is IN_FLIGHT, a dispatcher owns it until then
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
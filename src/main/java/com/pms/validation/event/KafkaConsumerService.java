@@ -2,9 +2,9 @@ package com.pms.validation.event;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.stream.Collectors;
 
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,8 +18,8 @@ import org.springframework.stereotype.Service;
 
 import com.pms.validation.proto.TradeEventProto;
 import com.pms.validation.service.processing.ValidationBatchProcessor;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
 import com.pms.validation.wrapper.PollBatch;
-import com.pms.rttm.client.clients.RttmClient;
 import com.pms.rttm.client.dto.DlqEventPayload;
 import com.pms.rttm.client.enums.EventStage;
 
@@ -29,28 +29,23 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class KafkaConsumerService {
 
-    @Autowired
-    private LinkedBlockingDeque<PollBatch> validationBuffer;
-
     @Autowired
     private ValidationBatchProcessor batchProcessor;
 
     @Autowired
-    private RttmClient rttmClient;
+    private RttmTelemetryEmitter telemetry;
 
     @Value("${spring.application.name}")
     private String serviceName;
 
-    @Value("${app.buffer.size:50}")
-    private int bufferSize;
-
     @Value("${spring.kafka.consumer.group-id}")
     private String consumerGroupId;
 
     // Batch consumer: receives ConsumerRecords which reliably contain partition
     // info
     @KafkaListener(id = "tradesListener", topics = "${app.incoming-trades-topic}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "protobufKafkaListenerContainerFactory")
-    public void consume(List<ConsumerRecord<String, TradeEventProto>> records, Acknowledgment ack) {
+    public void consume(List<ConsumerRecord<String, TradeEventProto>> records, Acknowledgment ack,
+            Consumer<?, ?> consumer) {
 
         log.info("Received {} trade messages", records.size());
 
@@ -59,9 +54,11 @@ public class KafkaConsumerService {
         List<Integer> partitions = new ArrayList<>();
         List<Long> offsets = new ArrayList<>();
         String topic = null;
+        long estimatedBytes = 0;
 
         for (ConsumerRecord<String, TradeEventProto> record : records) {
             messages.add(record.value());
+            estimatedBytes += PollBatch.estimateBytes(record.value());
             partitions.add(record.partition());
             offsets.add(record.offset());
             if (topic == null) {
@@ -71,18 +68,12 @@ public class KafkaConsumerService {
 
         log.debug("Messages from topic {} with partitions {}", topic, partitions);
 
-        // Create PollBatch and offer to buffer
-        PollBatch pollBatch = new PollBatch(messages, ack, partitions, topic, offsets, consumerGroupId);
-        validationBuffer.offer(pollBatch);
-
-        log.debug("Added batch to buffer. Current buffer size: {}", validationBuffer.size());
-
-        // Check if we should trigger batch processing
-        if (validationBuffer.size() >= bufferSize * 0.8) {
-            batchProcessor.checkAndFlush();
-        }
+        // Create PollBatch and hand it to the workers, which also trigger flushes
+        PollBatch pollBatch = new PollBatch(messages, ack, partitions, topic, offsets, consumerGroupId,
+                estimatedBytes, consumer.groupMetadata());
+        batchProcessor.enqueue(pollBatch);
 
-        // batchProcessor.checkAndFlush();
+        log.debug("Added batch of {} messages to worker buffers", messages.size());
     }
 
     @DltHandler
@@ -106,8 +97,8 @@ public class KafkaConsumerService {
                     .eventStage(EventStage.RECEIVED)
                     .build();
 
-            rttmClient.sendDlqEvent(dlqEvent);
-            log.info("Sent DLQ event to RTTM for trade {}", dltMessage.getTradeId());
+            telemetry.dlqEvent(dlqEvent);
+            log.info("Queued DLQ event to RTTM for trade {}", dltMessage.getTradeId());
         } catch (Exception ex) {
             log.warn("Failed to send DLQ event to RTTM: {}", ex.getMessage());
         }
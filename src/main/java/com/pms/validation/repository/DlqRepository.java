@@ -4,9 +4,24 @@ import java.util.UUID;
 
 import com.pms.validation.entity.DlqEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface DlqRepository extends JpaRepository<DlqEntry, Long> {
 
+    // One entry per trade: parking the same trade again (a replayed batch) is a no-op.
+    // Returns the number of rows inserted
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO validation_dlq_entry (trade_id, payload, error_detail, created_at)
+            VALUES (:tradeId, :payload, :errorDetail, now())
+            ON CONFLICT (trade_id) WHERE trade_id IS NOT NULL DO NOTHING
+            """, nativeQuery = true)
+    int parkTrade(@Param("tradeId") UUID tradeId, @Param("payload") byte[] payload,
+            @Param("errorDetail") String errorDetail);
 }
@@ -1,8 +1,13 @@
 package com.pms.validation.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pms.validation.entity.InvestorDetailsEntity;
@@ -10,4 +15,15 @@ import com.pms.validation.entity.InvestorDetailsEntity;
 @Repository
 public interface InvestorDetailsRepository extends JpaRepository<InvestorDetailsEntity, UUID> {
 
+    @Query("select i.portfolioId from InvestorDetailsEntity i")
+    List<UUID> findAllPortfolioIds();
+
+    @Query("select i.portfolioId from InvestorDetailsEntity i where i.portfolioId in :ids")
+    List<UUID> findExistingPortfolioIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("select i.portfolioId from InvestorDetailsEntity i where i.updatedAt >= :since")
+    List<UUID> findPortfolioIdsUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("select max(i.updatedAt) from InvestorDetailsEntity i")
+    LocalDateTime findLatestUpdatedAt();
 }
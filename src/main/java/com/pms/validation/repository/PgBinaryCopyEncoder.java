@@ -0,0 +1,183 @@
+package com.pms.validation.repository;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Encodes rows in the COPY binary format and streams them to a {@link CopyIn}
+ * in 64KB chunks. Only the types of the outbox tables are supported: uuid,
+ * text/varchar, bigint, numeric and timestamp without time zone.
+ */
+class PgBinaryCopyEncoder {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final int NUMERIC_POS = 0x0000;
+    private static final int NUMERIC_NEG = 0x4000;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final CopyIn copyIn;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+    PgBinaryCopyEncoder(CopyIn copyIn) throws SQLException {
+        this.copyIn = copyIn;
+        ensure(SIGNATURE.length + 8);
+        buffer.put(SIGNATURE);
+        buffer.putInt(0); // flags
+        buffer.putInt(0); // header extension length
+    }
+
+    void startRow(int fieldCount) throws SQLException {
+        ensure(2);
+        buffer.putShort((short) fieldCount);
+    }
+
+    void writeNull() throws SQLException {
+        ensure(4);
+        buffer.putInt(-1);
+    }
+
+    void writeUuid(UUID value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(20);
+        buffer.putInt(16);
+        buffer.putLong(value.getMostSignificantBits());
+        buffer.putLong(value.getLeastSignificantBits());
+    }
+
+    void writeText(String value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytea(byte[] value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeBytes(value);
+    }
+
+    void writeLong(Long value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(12);
+        buffer.putInt(8);
+        buffer.putLong(value);
+    }
+
+    void writeTimestamp(LocalDateTime value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(12);
+        buffer.putInt(8);
+        buffer.putLong(ChronoUnit.MICROS.between(PG_EPOCH, value));
+    }
+
+    /**
+     * numeric on the wire: ndigits, weight, sign, dscale, then ndigits base
+     * 10000 digits, the first one worth 10000^weight.
+     */
+    void writeNumeric(BigDecimal value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        BigDecimal abs = value.abs();
+        if (abs.scale() < 0) {
+            abs = abs.setScale(0);
+        }
+        String plain = abs.toPlainString();
+        int dot = plain.indexOf('.');
+        String intPart = dot < 0 ? plain : plain.substring(0, dot);
+        String fracPart = dot < 0 ? "" : plain.substring(dot + 1);
+
+        // Align both parts on 4 digit groups around the decimal point
+        int intGroups = (intPart.length() + 3) / 4;
+        int fracGroups = (fracPart.length() + 3) / 4;
+        String digits = "0".repeat(intGroups * 4 - intPart.length()) + intPart
+                + fracPart + "0".repeat(fracGroups * 4 - fracPart.length());
+
+        short[] groups = new short[intGroups + fracGroups];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = Short.parseShort(digits.substring(g * 4, g * 4 + 4));
+        }
+
+        int first = 0;
+        int last = groups.length;
+        while (first < last && groups[first] == 0) {
+            first++;
+        }
+        while (last > first && groups[last - 1] == 0) {
+            last--;
+        }
+        int ndigits = last - first;
+        int weight = ndigits == 0 ? 0 : intGroups - 1 - first;
+
+        ensure(4 + 8 + ndigits * 2);
+        buffer.putInt(8 + ndigits * 2);
+        buffer.putShort((short) ndigits);
+        buffer.putShort((short) weight);
+        buffer.putShort((short) (value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS));
+        buffer.putShort((short) abs.scale());
+        for (int g = first; g < last; g++) {
+            buffer.putShort(groups[g]);
+        }
+    }
+
+    /**
+     * Write the trailer and finish the COPY, returns the number of rows copied.
+     */
+    long finish() throws SQLException {
+        ensure(2);
+        buffer.putShort((short) -1);
+        flush();
+        return copyIn.endCopy();
+    }
+
+    private void writeBytes(byte[] bytes) throws SQLException {
+        ensure(4);
+        buffer.putInt(bytes.length);
+        if (bytes.length > buffer.remaining()) {
+            // Larger than a chunk, hand it over directly
+            flush();
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void ensure(int bytes) throws SQLException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.position() > 0) {
+            copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
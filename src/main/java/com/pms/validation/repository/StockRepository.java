@@ -1,6 +1,12 @@
 package com.pms.validation.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pms.validation.entity.StockEntity;
@@ -8,4 +14,15 @@ import com.pms.validation.entity.StockEntity;
 @Repository
 public interface StockRepository extends JpaRepository<StockEntity, Long> {
 
+    @Query("select s.symbol from StockEntity s")
+    List<String> findAllSymbols();
+
+    @Query("select s.symbol from StockEntity s where s.symbol in :symbols")
+    List<String> findExistingSymbols(@Param("symbols") Collection<String> symbols);
+
+    @Query("select s.symbol from StockEntity s where s.updatedAt >= :since")
+    List<String> findSymbolsUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("select max(s.updatedAt) from StockEntity s")
+    LocalDateTime findLatestUpdatedAt();
 }
@@ -0,0 +1,138 @@
+package com.pms.validation.repository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.pms.validation.entity.InvalidTradeEntity;
+import com.pms.validation.entity.ValidationOutboxEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk insert of a batch's outbox and invalid trade rows with
+ * COPY ... FROM STDIN (FORMAT binary), one streamed statement per table
+ * instead of one INSERT per row (IDENTITY ids keep Hibernate from batching).
+ *
+ * Runs on the connection of the current transaction, so the rows commit or
+ * roll back with the rest of the batch. The id column is left to its
+ * sequence default and the entities are not attached to the persistence
+ * context, so their ids stay null.
+ */
+@Repository
+@Slf4j
+public class TradeCopyRepository {
+
+    private static final String OUTBOX_COPY = """
+            COPY validation_outbox (event_id, trade_id, portfolio_id, symbol, side, price_per_stock, quantity,
+                trade_timestamp, sent_status, validation_status, validation_errors, rule_version, payload,
+                created_at, updated_at)
+            FROM STDIN (FORMAT binary)
+            """;
+
+    private static final String INVALID_COPY = """
+            COPY validation_invalid_trades (event_id, trade_id, portfolio_id, symbol, side, price_per_stock, quantity,
+                trade_timestamp, sent_status, validation_status, validation_errors, rule_version, payload,
+                created_at, updated_at)
+            FROM STDIN (FORMAT binary)
+            """;
+
+    private static final int FIELD_COUNT = 15;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TradeCopyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long copyOutbox(List<ValidationOutboxEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        // @PrePersist does not run outside of JPA
+        LocalDateTime now = LocalDateTime.now();
+        return copy(OUTBOX_COPY, encoder -> {
+            for (ValidationOutboxEntity e : entities) {
+                if (e.getCreatedAt() == null) {
+                    e.setCreatedAt(now);
+                }
+                e.setUpdatedAt(now);
+                encoder.startRow(FIELD_COUNT);
+                encoder.writeUuid(e.getEventId());
+                encoder.writeUuid(e.getTradeId());
+                encoder.writeUuid(e.getPortfolioId());
+                encoder.writeText(e.getSymbol());
+                encoder.writeText(e.getSide() != null ? e.getSide().name() : null);
+                encoder.writeNumeric(e.getPricePerStock());
+                encoder.writeLong(e.getQuantity());
+                encoder.writeTimestamp(e.getTradeTimestamp());
+                encoder.writeText(e.getSentStatus());
+                encoder.writeText(e.getValidationStatus());
+                encoder.writeText(e.getValidationErrors());
+                encoder.writeText(e.getRuleVersion());
+                encoder.writeBytea(e.getPayload());
+                encoder.writeTimestamp(e.getCreatedAt());
+                encoder.writeTimestamp(e.getUpdatedAt());
+            }
+        });
+    }
+
+    public long copyInvalidTrades(List<InvalidTradeEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return copy(INVALID_COPY, encoder -> {
+            for (InvalidTradeEntity e : entities) {
+                if (e.getCreatedAt() == null) {
+                    e.setCreatedAt(now);
+                }
+                e.setUpdatedAt(now);
+                encoder.startRow(FIELD_COUNT);
+                encoder.writeUuid(e.getEventId());
+                encoder.writeUuid(e.getTradeId());
+                encoder.writeUuid(e.getPortfolioId());
+                encoder.writeText(e.getSymbol());
+                encoder.writeText(e.getSide() != null ? e.getSide().name() : null);
+                encoder.writeNumeric(e.getPricePerStock());
+                encoder.writeLong(e.getQuantity());
+                encoder.writeTimestamp(e.getTradeTimestamp());
+                encoder.writeText(e.getSentStatus());
+                encoder.writeText(e.getValidationStatus());
+                encoder.writeText(e.getValidationErrors());
+                encoder.writeText(e.getRuleVersion());
+                encoder.writeBytea(e.getPayload());
+                encoder.writeTimestamp(e.getCreatedAt());
+                encoder.writeTimestamp(e.getUpdatedAt());
+            }
+        });
+    }
+
+    private long copy(String sql, RowWriter rows) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(copyIn);
+                rows.write(encoder);
+                return encoder.finish();
+            } finally {
+                // Still active only when encoding failed, leave the connection usable for the rollback
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+        return copied != null ? copied : 0;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PgBinaryCopyEncoder encoder) throws SQLException;
+    }
+}
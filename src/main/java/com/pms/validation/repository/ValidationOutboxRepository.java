@@ -1,6 +1,8 @@
 package com.pms.validation.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,25 +27,73 @@ public interface ValidationOutboxRepository extends JpaRepository<ValidationOutb
     @Query("SELECT o FROM ValidationOutboxEntity o WHERE o.validationOutboxId = :id")
     ValidationOutboxEntity lockByValidationOutboxId(Long id);
 
+    // Portfolios of the oldest PENDING rows, oldest first. Reads the partial
+    // (created_at) WHERE sent_status = 'PENDING' index, takes no locks. Rows
+    // without a portfolio have no group, see lockPendingWithoutPortfolio
     @Query(value = """
-            SELECT *    
+            SELECT c.portfolio_id
+            FROM (
+                SELECT e.portfolio_id, e.created_at, e.validation_outbox_id
+                FROM validation_outbox e
+                WHERE e.sent_status = 'PENDING'
+                    AND e.portfolio_id IS NOT NULL
+                ORDER BY e.created_at, e.validation_outbox_id
+                LIMIT :scan
+            ) c
+            GROUP BY c.portfolio_id
+            ORDER BY min(c.created_at), min(c.validation_outbox_id)
+            """, nativeQuery = true)
+    List<UUID> findPendingPortfolios(@Param("scan") int scan);
+
+    // One dispatcher per portfolio group until the claiming transaction ends,
+    // from then on its IN_FLIGHT rows keep the others away. Boolean: NULL for a null portfolio
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('VALIDATION_OUTBOX:' || CAST(:portfolioId AS text)))",
+            nativeQuery = true)
+    Boolean tryLockPortfolio(@Param("portfolioId") UUID portfolioId);
+
+    // Rows of one COPY share their created_at, the id (assigned in row order) breaks
+    // the tie so a portfolio's trades go out in the order they were validated
+    @Query(value = """
+            SELECT *
             FROM validation_outbox e
-            WHERE e.sent_status = 'PENDING'
-                AND pg_try_advisory_xact_lock(
-                            hashtext('VALIDATION_OUTBOX:' || e.portfolio_id::text)
+            WHERE e.portfolio_id = :portfolioId
+                AND e.sent_status = 'PENDING'
+                AND NOT EXISTS (
+                            SELECT 1 FROM validation_outbox f
+                            WHERE f.portfolio_id = e.portfolio_id
+                                AND f.sent_status = 'IN_FLIGHT'
                         )
-            ORDER BY e.created_at
-            LIMIT :limit;
-                                    """, nativeQuery = true)
-    List<ValidationOutboxEntity> findPendingWithPortfolioXactLock(@Param("limit") int limit);
+            ORDER BY e.created_at, e.validation_outbox_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ValidationOutboxEntity> lockPendingForPortfolio(@Param("portfolioId") UUID portfolioId, @Param("limit") int limit);
+
+    // The status updates take the oldest created_at of the rows as a lower bound,
+    // so only the recent created_at partitions are visited
+    @Modifying
+    @Transactional
+    @Query("update ValidationOutboxEntity e set e.sentStatus = 'SENT', e.leaseExpiresAt = null where e.validationOutboxId in :ids and e.createdAt >= :since")
+    void markAsSent(@Param("ids") List<Long> ids, @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("update ValidationOutboxEntity e set e.sentStatus = 'FAILED', e.leaseExpiresAt = null where e.validationOutboxId = :id and e.createdAt >= :since")
+    void markAsFailed(@Param("id") Long id, @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("update ValidationOutboxEntity e set e.sentStatus = 'IN_FLIGHT', e.leaseExpiresAt = :leaseExpiresAt where e.validationOutboxId in :ids and e.createdAt >= :since")
+    void markInFlight(@Param("ids") List<Long> ids, @Param("since") LocalDateTime since,
+            @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
 
     @Modifying
     @Transactional
-    @Query("update ValidationOutboxEntity e set e.sentStatus = 'SENT' where e.validationOutboxId in :ids")
-    void markAsSent(@Param("ids") List<Long> ids);
+    @Query("update ValidationOutboxEntity e set e.sentStatus = 'PENDING', e.leaseExpiresAt = null where e.validationOutboxId in :ids and e.createdAt >= :since and e.sentStatus = 'IN_FLIGHT'")
+    int releaseClaims(@Param("ids") List<Long> ids, @Param("since") LocalDateTime since);
 
     @Modifying
     @Transactional
-    @Query("update ValidationOutboxEntity e set e.sentStatus = 'FAILED' where e.validationOutboxId = :id")
-    void markAsFailed(@Param("id") Long id);
+    @Query("update ValidationOutboxEntity e set e.sentStatus = 'PENDING', e.leaseExpiresAt = null where e.sentStatus = 'IN_FLIGHT' and e.leaseExpiresAt < :now")
+    int releaseExpiredLeases(@Param("now") LocalDateTime now);
 }
@@ -0,0 +1,145 @@
+package com.pms.validation.service.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.dto.ValidationResultDto;
+import com.pms.validation.service.reference.ReferenceData;
+
+/**
+ * Pure Java implementation of rules/trade-validation.drl. The rules are
+ * stateless field checks, so they run here as a fixed list of predicates with
+ * no working memory and no KieSession pool.
+ *
+ * The checks are declared in the same order as the DRL rules and emit the same
+ * messages, so both engines produce identical error lists (see
+ * ValidationEngineConformanceTest). Any rule change must be made in both places.
+ */
+@Service
+@ConditionalOnProperty(name = "app.validation.engine", havingValue = "compiled")
+public class CompiledTradeValidationService implements TradeValidationService {
+
+    // Stamped on outbox rows in place of the DRL content version
+    public static final String RULE_VERSION = "compiled";
+
+    private static final BigDecimal HIGH_PRICE = new BigDecimal("1000000");
+
+    private static final long MAX_QUANTITY = 1_000_000L;
+
+    private static final int MAX_SYMBOL_LENGTH = 10;
+
+    @FunctionalInterface
+    interface TradeCheck {
+        void check(TradeDto trade, ReferenceData referenceData, LocalDateTime now, ValidationResultDto result);
+    }
+
+    private static final List<TradeCheck> CHECKS = List.of(
+            // Trade - required fields
+            (t, ref, now, r) -> {
+                if (t.getTradeId() == null) r.addError("tradeId is required");
+                if (t.getPortfolioId() == null) r.addError("portfolioId is required");
+                if (isBlank(t.getSymbol())) r.addError("symbol is required");
+
+                if (t.getSide() == null) r.addError("side is required");
+                if (t.getPricePerStock() == null) r.addError("pricePerStock is required");
+                if (t.getQuantity() == null) r.addError("quantity is required");
+                if (t.getTimestamp() == null) r.addError("timestamp is required");
+            },
+            // Trade - portfolio must exist in DB
+            (t, ref, now, r) -> {
+                if (t.getPortfolioId() != null && !ref.hasPortfolio(t.getPortfolioId())) {
+                    r.addError("Invalid portfolio: " + t.getPortfolioId());
+                }
+            },
+            // Trade - symbol must exist in DB
+            (t, ref, now, r) -> {
+                if (t.getSymbol() != null && !ref.hasSymbol(t.getSymbol())) {
+                    r.addError("Invalid symbol: " + t.getSymbol());
+                }
+            },
+            // Trade - price must be positive
+            (t, ref, now, r) -> {
+                if (t.getPricePerStock() != null && t.getPricePerStock().compareTo(BigDecimal.ZERO) <= 0) {
+                    r.addError("pricePerStock must be greater than 0");
+                }
+            },
+            // Trade - quantity must be positive
+            (t, ref, now, r) -> {
+                if (t.getQuantity() == null) {
+                    return;
+                }
+                if (t.getQuantity() <= 0) {
+                    r.addError("quantity must be greater than 0");
+                }
+                if (t.getQuantity() > MAX_QUANTITY) {
+                    r.addError("quantity exceeds maximum allowed per trade (1,000,000)");
+                }
+            },
+            // Trade - timestamp sanity
+            (t, ref, now, r) -> {
+                if (t.getTimestamp() == null) {
+                    return;
+                }
+                if (t.getTimestamp().isAfter(now)) {
+                    r.addError("timestamp cannot be in the future");
+                }
+                if (t.getTimestamp().isBefore(now.minusYears(1))) {
+                    r.addError("timestamp is too old (older than 1 year)");
+                }
+            },
+            // Trade - side validation
+            (t, ref, now, r) -> {
+                if (t.getSide() == null) {
+                    return;
+                }
+                String sideLower = t.getSide().toString().toLowerCase();
+                if (!sideLower.equals("buy") && !sideLower.equals("sell")) {
+                    r.addError("side must be BUY or SELL");
+                }
+            },
+            // Trade - symbol basic format
+            (t, ref, now, r) -> {
+                if (t.getSymbol() == null) {
+                    return;
+                }
+                int length = t.getSymbol().length();
+                if (length < 1 || length > MAX_SYMBOL_LENGTH) {
+                    r.addError("symbol length must be between 1 and 10 characters");
+                }
+            },
+            // Trade - high price flag
+            (t, ref, now, r) -> {
+                if (t.getPricePerStock() != null && t.getPricePerStock().compareTo(HIGH_PRICE) >= 0) {
+                    r.addError("pricePerStock unusually high - requires review");
+                }
+            });
+
+    @Override
+    public List<ValidationResultDto> validateBatch(List<TradeDto> trades, ReferenceData referenceData) {
+        List<ValidationResultDto> results = new ArrayList<>(trades.size());
+
+        // Drools evaluates LocalDateTime.now() per firing; one clock read per batch is
+        // equivalent for the one-year window the timestamp rule checks
+        LocalDateTime now = LocalDateTime.now();
+
+        for (TradeDto trade : trades) {
+            ValidationResultDto result = new ValidationResultDto(trade);
+            result.setRuleVersion(RULE_VERSION);
+            for (TradeCheck check : CHECKS) {
+                check.check(trade, referenceData, now, result);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().length() == 0;
+    }
+}
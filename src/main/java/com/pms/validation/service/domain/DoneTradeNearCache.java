@@ -0,0 +1,118 @@
+package com.pms.validation.service.domain;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-process cache of recently completed trade ids in front of Redis.
+ *
+ * Redeliveries after a rebalance or restart mostly replay trades processed
+ * minutes earlier, so they resolve here without a network call. Keys are the
+ * UUIDs themselves (two longs) rather than "trade:" strings. Entries expire
+ * after app.idempotency.near-cache.ttl and the oldest are evicted past
+ * max-entries. A miss only means "ask Redis", Redis stays the source of truth.
+ */
+@Component
+@ConditionalOnProperty(name = "app.idempotency.mode", havingValue = "redis", matchIfMissing = true)
+public class DoneTradeNearCache {
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    // Insertion ordered, so the eldest entry is also the first to expire
+    private final LinkedHashMap<UUID, Long> expiries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public DoneTradeNearCache(MeterRegistry meterRegistry,
+            @Value("${app.idempotency.near-cache.max-entries:200000}") int maxEntries,
+            @Value("${app.idempotency.near-cache.ttl:15m}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.expiries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > DoneTradeNearCache.this.maxEntries;
+            }
+        };
+
+        this.hits = Counter.builder("validation.idempotency.near_cache.hits")
+                .description("Trade ids found DONE in the near-cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("validation.idempotency.near_cache.misses")
+                .description("Trade ids looked up in Redis after a near-cache miss")
+                .register(meterRegistry);
+        Gauge.builder("validation.idempotency.near_cache.size", this, DoneTradeNearCache::size)
+                .description("Trade ids held in the near-cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * The ids of the batch known to be DONE.
+     */
+    public Set<UUID> findDone(Collection<UUID> tradeIds) {
+        Set<UUID> done = new HashSet<>();
+        if (!isEnabled()) {
+            return done;
+        }
+
+        long now = System.nanoTime();
+        synchronized (expiries) {
+            for (UUID tradeId : tradeIds) {
+                Long expiresAt = expiries.get(tradeId);
+                if (expiresAt == null) {
+                    continue;
+                }
+                if (expiresAt - now > 0) {
+                    done.add(tradeId);
+                } else {
+                    expiries.remove(tradeId);
+                }
+            }
+        }
+
+        hits.increment(done.size());
+        misses.increment(tradeIds.size() - done.size());
+        return done;
+    }
+
+    public void putDone(Collection<UUID> tradeIds) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (expiries) {
+            for (UUID tradeId : tradeIds) {
+                // Re-insert so a refreshed id moves to the young end
+                expiries.remove(tradeId);
+                expiries.put(tradeId, expiresAt);
+            }
+        }
+    }
+
+    private int size() {
+        synchronized (expiries) {
+            return expiries.size();
+        }
+    }
+}
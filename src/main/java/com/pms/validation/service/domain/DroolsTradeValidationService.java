@@ -0,0 +1,107 @@
+package com.pms.validation.service.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.ConsequenceException;
+import org.kie.api.runtime.rule.FactHandle;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.dto.ValidationResultDto;
+import com.pms.validation.service.metrics.RuleMetrics;
+import com.pms.validation.service.reference.ReferenceData;
+import com.pms.validation.service.rules.RuleSet;
+import com.pms.validation.service.rules.RuleSetManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@ConditionalOnProperty(name = "app.validation.engine", havingValue = "drools", matchIfMissing = true)
+@Slf4j
+public class DroolsTradeValidationService implements TradeValidationService {
+
+    private final RuleSetManager ruleSetManager;
+
+    public DroolsTradeValidationService(RuleSetManager ruleSetManager) {
+        this.ruleSetManager = ruleSetManager;
+    }
+
+    /**
+     * Validate a batch of trades in one KieSession with a single fireAllRules.
+     * Each trade is inserted through its own result fact, which the rules match
+     * on, so the session borrow and agenda setup are paid once per batch.
+     * Results are returned in the same order as the trades.
+     */
+    @Override
+    public List<ValidationResultDto> validateBatch(List<TradeDto> trades, ReferenceData referenceData) {
+        List<ValidationResultDto> results = new ArrayList<>(trades.size());
+        if (trades.isEmpty()) {
+            return results;
+        }
+
+        // Held for the whole batch: a hot reload swapping the rule set mid batch must
+        // not mix versions, nor close the pool before the session is borrowed
+        RuleSet ruleSet = ruleSetManager.acquire();
+        RuleMetrics ruleMetrics = ruleSetManager.ruleMetrics();
+
+        KieSession kieSession = null;
+        boolean sessionReusable = false;
+        try {
+            kieSession = ruleSet.sessionPool().borrowObject();
+
+            kieSession.setGlobal("validPortfolios", referenceData.portfolioIds());
+            kieSession.setGlobal("validSymbols", referenceData.symbols());
+
+            List<FactHandle> handles = new ArrayList<>(trades.size());
+            for (TradeDto trade : trades) {
+                ValidationResultDto result = new ValidationResultDto(trade);
+                result.setRuleVersion(ruleSet.version());
+                results.add(result);
+                handles.add(kieSession.insert(result));
+            }
+
+            ruleMetrics.beginBatch();
+            try {
+                kieSession.fireAllRules();
+            } finally {
+                ruleMetrics.endBatch();
+            }
+
+            handles.forEach(kieSession::delete);
+            sessionReusable = true;
+
+            return results;
+        } catch (ConsequenceException ex) {
+            ruleMetrics.recordFailure(ex.getMatch().getRule().getName());
+            log.error("Rule '{}' failed during trade validation: {}", ex.getMatch().getRule().getName(), ex.getMessage());
+            throw ex;
+        } catch (RuntimeException ex) {
+            log.error("Runtime error during trade validation: {}", ex.getMessage());
+            throw ex;
+        } catch (Exception ex) {
+            log.error("Error during trade validation: {}", ex.getMessage());
+            throw new RuntimeException("Validation error", ex);
+        } finally {
+            if (kieSession != null) {
+                releaseSession(ruleSet, kieSession, sessionReusable);
+            }
+            ruleSetManager.release(ruleSet);
+        }
+    }
+
+    private void releaseSession(RuleSet ruleSet, KieSession kieSession, boolean reusable) {
+        try {
+            if (reusable) {
+                ruleSet.sessionPool().returnObject(kieSession);
+            } else {
+                // Facts may still be in working memory, don't hand the session out again
+                ruleSet.sessionPool().invalidateObject(kieSession);
+            }
+        } catch (Exception e) {
+            log.warn("Failed returning KieSession to pool: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.pms.validation.service.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Redis encodings of an idempotency entry.
+ *
+ * STRING - legacy "trade:" + UUID text key (42 bytes) holding "PROCESSING" or
+ * "DONE".
+ * BINARY - a one byte namespace tag followed by the 16 raw UUID bytes, holding
+ * a one byte state. The tag keeps the keys apart from the cache entries that
+ * share this Redis.
+ */
+public enum IdempotencyKeyFormat {
+
+    STRING("PROCESSING", "DONE") {
+        @Override
+        public byte[] key(UUID tradeId) {
+            return ("trade:" + tradeId).getBytes(StandardCharsets.UTF_8);
+        }
+    },
+
+    BINARY("P", "D") {
+        @Override
+        public byte[] key(UUID tradeId) {
+            return ByteBuffer.allocate(17)
+                    .put(BINARY_KEY_TAG)
+                    .putLong(tradeId.getMostSignificantBits())
+                    .putLong(tradeId.getLeastSignificantBits())
+                    .array();
+        }
+    };
+
+    private static final byte BINARY_KEY_TAG = 't';
+
+    private final byte[] processingValue;
+    private final byte[] doneValue;
+
+    IdempotencyKeyFormat(String processingValue, String doneValue) {
+        this.processingValue = processingValue.getBytes(StandardCharsets.UTF_8);
+        this.doneValue = doneValue.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public abstract byte[] key(UUID tradeId);
+
+    public byte[] processingValue() {
+        return processingValue.clone();
+    }
+
+    public byte[] doneValue() {
+        return doneValue.clone();
+    }
+
+    /**
+     * Formats used for app.idempotency.redis.key-format:
+     * string - legacy keys only.
+     * dual - reads and writes both, for the transition while pods on the old
+     * format are still running and its DONE keys have not expired.
+     * binary - compact keys only, once the legacy DONE keys have aged out
+     * (DONE_TTL after the last pod stopped writing them).
+     */
+    public static List<IdempotencyKeyFormat> forMode(String mode) {
+        return switch (mode.toLowerCase()) {
+            case "binary" -> List.of(BINARY);
+            case "dual" -> List.of(BINARY, STRING);
+            case "string" -> List.of(STRING);
+            default -> throw new IllegalArgumentException("Unknown idempotency key format: " + mode);
+        };
+    }
+}
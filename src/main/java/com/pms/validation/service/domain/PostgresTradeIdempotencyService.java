@@ -0,0 +1,113 @@
+package com.pms.validation.service.domain;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency without Redis. Trades are claimed by inserting them into
+ * validation_processed_messages in the batch transaction; the unique
+ * (trade_id, consumer_group) constraint rejects trades already claimed. The
+ * claim commits or rolls back together with the outbox rows, so there is no
+ * separate DONE write or release step.
+ *
+ * A concurrent transaction inserting the same trade blocks on the unique
+ * index until the other commits (then DONE here) or rolls back (then claimed
+ * here), so CONTENDED is never returned. Ids are inserted in sorted order:
+ * two batches claiming overlapping trades in different orders would otherwise
+ * wait on each other's index entries and deadlock.
+ */
+@Service
+@ConditionalOnProperty(name = "app.idempotency.mode", havingValue = "postgres")
+@Slf4j
+public class PostgresTradeIdempotencyService implements TradeIdempotencyService {
+
+    // 3 bind parameters per row, well below the 65535 parameter limit
+    private static final int CLAIM_CHUNK_SIZE = 1000;
+
+    private static final int PURGE_CHUNK_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.idempotency.postgres.retention:7d}")
+    private Duration retention;
+
+    public PostgresTradeIdempotencyService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ClaimState> claimBatch(List<UUID> tradeIds, String consumerGroup, String topic) {
+        // Same lock order in every transaction, the states below keep the caller's order
+        List<UUID> sorted = new ArrayList<>(tradeIds);
+        Collections.sort(sorted);
+
+        Set<UUID> claimed = new HashSet<>();
+        for (int from = 0; from < sorted.size(); from += CLAIM_CHUNK_SIZE) {
+            List<UUID> chunk = sorted.subList(from, Math.min(from + CLAIM_CHUNK_SIZE, sorted.size()));
+            claimed.addAll(claimChunk(chunk, consumerGroup, topic));
+        }
+
+        List<ClaimState> states = new ArrayList<>(tradeIds.size());
+        for (UUID tradeId : tradeIds) {
+            states.add(claimed.contains(tradeId) ? ClaimState.RESERVED : ClaimState.DONE);
+        }
+
+        log.debug("Postgres batch claim | trades={} claimed={}", tradeIds.size(), claimed.size());
+        return states;
+    }
+
+    private List<UUID> claimChunk(List<UUID> tradeIds, String consumerGroup, String topic) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO validation_processed_messages (trade_id, consumer_group, topic, processed_at) VALUES ");
+        List<Object> args = new ArrayList<>(tradeIds.size() * 3);
+        for (int i = 0; i < tradeIds.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, now())" : ", (?, ?, ?, now())");
+            args.add(tradeIds.get(i));
+            args.add(consumerGroup);
+            args.add(topic);
+        }
+        sql.append(" ON CONFLICT (trade_id, consumer_group) DO NOTHING RETURNING trade_id");
+
+        return jdbcTemplate.queryForList(sql.toString(), UUID.class, args.toArray());
+    }
+
+    /**
+     * Drop claims older than the retention window in small chunks, so the table
+     * stays small without long locks. The window must cover the longest
+     * redelivery we expect, like DONE_TTL in the Redis engine.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.postgres.purge-interval-ms:600000}")
+    public void purgeExpiredClaims() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("""
+                    DELETE FROM validation_processed_messages
+                    WHERE id IN (
+                        SELECT id FROM validation_processed_messages
+                        WHERE processed_at < ?
+                        LIMIT ?)
+                    """, cutoff, PURGE_CHUNK_SIZE);
+            total += deleted;
+        } while (deleted == PURGE_CHUNK_SIZE);
+
+        if (total > 0) {
+            log.info("Purged {} processed message claims older than {}", total, cutoff);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.pms.validation.service.domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+@ConditionalOnProperty(name = "app.idempotency.mode", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisTradeIdempotencyService implements TradeIdempotencyService {
+
+    private static final Duration PROCESSING_TTL = Duration.ofMinutes(5);
+    private static final Duration DONE_TTL = Duration.ofDays(7);
+
+    // Every trade has one key per active format (see IdempotencyKeyFormat.forMode),
+    // KEYS holds them trade by trade. ARGV[1] is the number of formats n, ARGV[2]
+    // the PROCESSING ttl in ms, then the n PROCESSING values and the n DONE values.
+    // Per trade: DONE in any format -> 'D', otherwise SET NX PROCESSING in every
+    // format -> 'R', or 'C' when any is taken (the keys set so far are undone)
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local n = tonumber(ARGV[1])
+            local result = {}
+            for i = 1, #KEYS / n do
+                local base = (i - 1) * n
+                local state = 'R'
+                for j = 1, n do
+                    if redis.call('GET', KEYS[base + j]) == ARGV[2 + n + j] then
+                        state = 'D'
+                        break
+                    end
+                end
+                if state == 'R' then
+                    for j = 1, n do
+                        if not redis.call('SET', KEYS[base + j], ARGV[2 + j], 'NX', 'PX', ARGV[2]) then
+                            state = 'C'
+                            for k = 1, j - 1 do
+                                redis.call('DEL', KEYS[base + k])
+                            end
+                            break
+                        end
+                    end
+                end
+                result[i] = state
+            end
+            return result
+            """, List.class);
+
+    // Same key layout, ARGV[1] is n followed by the n PROCESSING values. Deletes
+    // the keys still in PROCESSING, returns how many were released
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            local n = tonumber(ARGV[1])
+            local released = 0
+            for k, key in ipairs(KEYS) do
+                if redis.call('GET', key) == ARGV[1 + ((k - 1) % n) + 1] then
+                    redis.call('DEL', key)
+                    released = released + 1
+                end
+            end
+            return released
+            """, Long.class);
+
+    private final RedisTemplate<byte[], byte[]> redisTemplate;
+
+    private final DoneTradeNearCache nearCache;
+
+    private final List<IdempotencyKeyFormat> formats;
+
+    public RedisTradeIdempotencyService(
+            @Qualifier("idempotencyRedisTemplate") RedisTemplate<byte[], byte[]> redisTemplate,
+            DoneTradeNearCache nearCache,
+            @Value("${app.idempotency.redis.key-format:string}") String keyFormat) {
+        this.redisTemplate = redisTemplate;
+        this.nearCache = nearCache;
+        this.formats = IdempotencyKeyFormat.forMode(keyFormat);
+        log.info("Redis idempotency key formats: {}", formats);
+    }
+
+    /**
+     * Classify a batch of distinct trade ids in one round trip: DONE trades are
+     * reported, the others get a PROCESSING reservation if nobody holds one.
+     * Trades in the near-cache are DONE without asking Redis. The reservations
+     * are marked DONE after the transaction commits and released if it does not.
+     */
+    @Override
+    public List<ClaimState> claimBatch(List<UUID> tradeIds, String consumerGroup, String topic) {
+        List<ClaimState> states = claim(tradeIds);
+
+        List<UUID> reservedIds = new ArrayList<>();
+        for (int i = 0; i < tradeIds.size(); i++) {
+            if (states.get(i) == ClaimState.RESERVED) {
+                reservedIds.add(tradeIds.get(i));
+            }
+        }
+        if (!reservedIds.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            registerCompletion(reservedIds);
+        }
+        return states;
+    }
+
+    private List<ClaimState> claim(List<UUID> tradeIds) {
+        List<ClaimState> states = new ArrayList<>(tradeIds.size());
+        if (tradeIds.isEmpty()) {
+            return states;
+        }
+
+        Set<UUID> knownDone = nearCache.findDone(tradeIds);
+        List<UUID> remoteIds = tradeIds;
+        if (!knownDone.isEmpty()) {
+            remoteIds = new ArrayList<>(tradeIds.size() - knownDone.size());
+            for (UUID tradeId : tradeIds) {
+                if (!knownDone.contains(tradeId)) {
+                    remoteIds.add(tradeId);
+                }
+            }
+        }
+
+        List<?> result = remoteIds.isEmpty() ? List.of()
+                : redisTemplate.execute(CLAIM_SCRIPT, keys(remoteIds), claimArgs());
+
+        int r = 0;
+        for (UUID tradeId : tradeIds) {
+            if (knownDone.contains(tradeId)) {
+                states.add(ClaimState.DONE);
+                continue;
+            }
+            states.add(switch (code(result.get(r++))) {
+                case "D" -> ClaimState.DONE;
+                case "R" -> ClaimState.RESERVED;
+                default -> ClaimState.CONTENDED;
+            });
+        }
+
+        log.debug("Redis batch claim | trades={} nearCacheDone={}", tradeIds.size(), knownDone.size());
+        return states;
+    }
+
+    private void registerCompletion(List<UUID> reservedIds) {
+        // - mark DONE after commit
+        // - clear the PROCESSING reservations if the transaction rolled back, otherwise
+        // its retry would find every trade CONTENDED until the reservations expire
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    markDoneBatch(reservedIds);
+                } catch (Exception ex) {
+                    log.error("Failed to mark idempotency DONE for {} trades", reservedIds.size(), ex);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // Nothing was persisted, release every reservation of the batch
+                if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                    releaseBatch(reservedIds);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark a batch of trades DONE with one pipelined round trip.
+     */
+    public void markDoneBatch(Collection<UUID> tradeIds) {
+        if (tradeIds.isEmpty()) {
+            return;
+        }
+
+        Expiration expiration = Expiration.from(DONE_TTL);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (UUID tradeId : tradeIds) {
+                for (IdempotencyKeyFormat format : formats) {
+                    connection.stringCommands().set(format.key(tradeId), format.doneValue(), expiration,
+                            SetOption.upsert());
+                }
+            }
+            return null;
+        });
+
+        nearCache.putDone(tradeIds);
+
+        log.debug("Redis state set to DONE | trades={} ttl={}days", tradeIds.size(), DONE_TTL.toDays());
+    }
+
+    /**
+     * Release the PROCESSING reservations of a batch in one round trip. Keys that
+     * are DONE or were never reserved are left alone.
+     */
+    public void releaseBatch(Collection<UUID> tradeIds) {
+        if (tradeIds.isEmpty()) {
+            return;
+        }
+        try {
+            Object[] args = new Object[1 + formats.size()];
+            args[0] = bytes(formats.size());
+            for (int j = 0; j < formats.size(); j++) {
+                args[1 + j] = formats.get(j).processingValue();
+            }
+
+            Long released = redisTemplate.execute(RELEASE_SCRIPT, keys(tradeIds), args);
+            log.debug("Cleared PROCESSING state | trades={} released={}", tradeIds.size(), released);
+        } catch (Exception ex) {
+            log.warn("Failed to clear PROCESSING state for {} trades: {}", tradeIds.size(), ex.getMessage());
+        }
+    }
+
+    private List<byte[]> keys(Collection<UUID> tradeIds) {
+        List<byte[]> keys = new ArrayList<>(tradeIds.size() * formats.size());
+        for (UUID tradeId : tradeIds) {
+            for (IdempotencyKeyFormat format : formats) {
+                keys.add(format.key(tradeId));
+            }
+        }
+        return keys;
+    }
+
+    private Object[] claimArgs() {
+        int n = formats.size();
+        Object[] args = new Object[2 + 2 * n];
+        args[0] = bytes(n);
+        args[1] = bytes(PROCESSING_TTL.toMillis());
+        for (int j = 0; j < n; j++) {
+            args[2 + j] = formats.get(j).processingValue();
+            args[2 + n + j] = formats.get(j).doneValue();
+        }
+        return args;
+    }
+
+    private static byte[] bytes(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String code(Object value) {
+        return value instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+}
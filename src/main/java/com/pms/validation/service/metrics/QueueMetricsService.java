@@ -1,47 +1,58 @@
 package com.pms.validation.service.metrics;
 
-import java.time.Duration;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
-import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import com.pms.rttm.client.clients.RttmClient;
 import com.pms.rttm.client.dto.QueueMetricPayload;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service to send queue metrics to RTTM at regular intervals.
  * This tracks the offset positions of the validation service's input/output
  * queues.
+ *
+ * Each run costs three admin requests whatever the partition count: the
+ * partitions of the monitored topics, their end offsets, and the committed
+ * offsets of the consumer group. The lag per partition is also exposed as
+ * the kafka.queue.lag gauge.
  */
 @Service
 @Slf4j
 public class QueueMetricsService {
 
     @Autowired
-    private RttmClient rttmClient;
+    private RttmTelemetryEmitter telemetry;
 
     @Autowired
-    private KafkaConsumer<String, String> metricsConsumer;
-
-    @Value("${app.incoming-trades-topic}")
-    private String incomingTopic;
+    private AdminClient metricsAdminClient;
 
-    @Value("${app.outgoing-valid-trades-topic}")
-    private String validTradesTopic;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    @Value("${app.outgoing-invalid-trades-topic}")
-    private String invalidTradesTopic;
+    // Every service sends metrics for its outgoing topics only: the incoming topic is
+    // the previous service's outgoing one, and invalid trades are not in the pipeline
+    @Value("${rttm.metrics.topics:${app.outgoing-valid-trades-topic}}")
+    private List<String> topics;
 
     @Value("${spring.kafka.consumer.group-id}")
     private String consumerGroup;
@@ -49,83 +60,84 @@ public class QueueMetricsService {
     @Value("${spring.application.name}")
     private String serviceName;
 
+    // Deadline for each admin request of a run
+    @Value("${rttm.metrics.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private final Map<TopicPartition, AtomicLong> lags = new ConcurrentHashMap<>();
+
     /**
-     * Send queue metrics every 30 seconds
+     * Send queue metrics every rttm.metrics.interval-ms
      */
-    @Scheduled(fixedDelayString = "${rttm.metrics.interval-ms:30000}")
+    @Scheduled(fixedDelayString = "${rttm.metrics.interval-ms:5000}")
     public void sendQueueMetrics() {
         try {
-            // Send metrics for incoming topic
-            // Every service sends metrics for their outgoing service
-            // Don't send cuz monitoring incoming topic is not our job, this topic is
-            // previous service's job
-            // (as this topic is their outgoing topic)
-            // sendMetricsForAllPartitions(metricsConsumer, incomingTopic);
-
-            // Send metrics for valid trades topic
-            sendMetricsForAllPartitions(metricsConsumer, validTradesTopic);
+            Map<TopicPartition, OffsetSpec> partitions = partitions();
+            if (partitions.isEmpty()) {
+                log.warn("No partitions found for topics: {}", topics);
+                return;
+            }
 
-            // Send metrics for invalid trades topic
-            // Don't send cuz invalid trades is not in pipeline
-            // sendMetricsForAllPartitions(metricsConsumer, invalidTradesTopic);
+            Map<TopicPartition, ListOffsetsResultInfo> endOffsets = metricsAdminClient.listOffsets(partitions)
+                    .all().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+            Map<TopicPartition, OffsetAndMetadata> committed = metricsAdminClient
+                    .listConsumerGroupOffsets(consumerGroup)
+                    .partitionsToOffsetAndMetadata().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+            for (TopicPartition partition : partitions.keySet()) {
+                ListOffsetsResultInfo end = endOffsets.get(partition);
+                long producedOffset = end != null ? end.offset() : 0L;
+                OffsetAndMetadata committedOffset = committed.get(partition);
+                long consumedOffset = committedOffset != null ? committedOffset.offset() : 0L;
+
+                lag(partition).set(Math.max(0, producedOffset - consumedOffset));
+
+                QueueMetricPayload metric = QueueMetricPayload.builder()
+                        .serviceName(serviceName)
+                        .topicName(partition.topic())
+                        .partitionId(partition.partition())
+                        .producedOffset(producedOffset)
+                        .consumedOffset(consumedOffset)
+                        .consumerGroup(consumerGroup)
+                        .build();
+                telemetry.queueMetric(partition.topic(), partition.partition(), metric);
+            }
 
-            log.debug("Queue metrics sent to RTTM successfully");
+            log.debug("Queued queue metrics of {} partitions to RTTM", partitions.size());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         } catch (Exception ex) {
             log.warn("Failed to send queue metrics to RTTM: {}", ex.getMessage());
         }
     }
 
     /**
-     * Send metrics for all partitions of a topic
+     * All partitions of the monitored topics, asking for their latest offset.
      */
-    private void sendMetricsForAllPartitions(KafkaConsumer<String, String> consumer, String topicName) {
-        try {
-            // Discover all partitions for this topic
-            List<PartitionInfo> partitionInfos = consumer.partitionsFor(topicName);
-
-            if (partitionInfos == null || partitionInfos.isEmpty()) {
-                log.warn("No partitions found for topic: {}", topicName);
-                return;
+    private Map<TopicPartition, OffsetSpec> partitions() throws Exception {
+        Map<String, TopicDescription> descriptions = metricsAdminClient.describeTopics(topics)
+                .allTopicNames().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+        Map<TopicPartition, OffsetSpec> partitions = new HashMap<>();
+        for (TopicDescription description : descriptions.values()) {
+            for (TopicPartitionInfo info : description.partitions()) {
+                partitions.put(new TopicPartition(description.name(), info.partition()), OffsetSpec.latest());
             }
-
-            // Send metric for each partition
-            for (PartitionInfo partitionInfo : partitionInfos) {
-                sendMetricForTopic(consumer, topicName, partitionInfo.partition());
-            }
-        } catch (Exception ex) {
-            log.warn("Failed to get partitions for topic {}: {}", topicName, ex.getMessage());
         }
+        return partitions;
     }
 
-    /**
-     * Send queue metric for a specific topic partition
-     */
-    private void sendMetricForTopic(KafkaConsumer<String, String> consumer, String topicName, int partitionId) {
-        try {
-            TopicPartition topicPartition = new TopicPartition(topicName, partitionId);
-
-            // Get the end offset (latest produced offset)
-            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(Collections.singletonList(topicPartition));
-            long producedOffset = endOffsets.getOrDefault(topicPartition, 0L);
-
-            // Get the committed offset (consumed offset) for this consumer group
-            OffsetAndMetadata committedOffset = consumer
-                    .committed(Collections.singleton(topicPartition), Duration.ofSeconds(5)).get(topicPartition);
-            long consumedOffset = (committedOffset != null) ? committedOffset.offset() : 0L;
-
-            QueueMetricPayload metric = QueueMetricPayload.builder()
-                    .serviceName(serviceName)
-                    .topicName(topicName)
-                    .partitionId(partitionId)
-                    .producedOffset(producedOffset)
-                    .consumedOffset(consumedOffset)
-                    .consumerGroup(consumerGroup)
-                    .build();
-            rttmClient.sendQueueMetric(metric);
-            log.debug("Sent queue metric for topic {} partition {} - produced: {}, consumed: {}",
-                    topicName, partitionId, producedOffset, consumedOffset);
-        } catch (Exception ex) {
-            log.warn("Failed to send queue metric for {}: {}", topicName, ex.getMessage());
-        }
+    private AtomicLong lag(TopicPartition partition) {
+        return lags.computeIfAbsent(partition, p -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder("kafka.queue.lag", lag, AtomicLong::get)
+                    .description("Produced minus committed offset of the consumer group")
+                    .tag("topic", p.topic())
+                    .tag("partition", String.valueOf(p.partition()))
+                    .tag("group", consumerGroup)
+                    .register(meterRegistry);
+            return lag;
+        });
     }
-}
\ No newline at end of file
+}
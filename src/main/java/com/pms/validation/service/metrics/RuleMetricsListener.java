@@ -0,0 +1,63 @@
+package com.pms.validation.service.metrics;
+
+import org.kie.api.definition.rule.Rule;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+
+/**
+ * Attached to every pooled KieSession. A session is only used by one thread
+ * at a time, so the firing start time can live in a plain field.
+ */
+public class RuleMetricsListener extends DefaultAgendaEventListener implements RuleRuntimeEventListener {
+
+    private final RuleMetrics ruleMetrics;
+
+    private long firingStartedAt;
+
+    public RuleMetricsListener(RuleMetrics ruleMetrics) {
+        this.ruleMetrics = ruleMetrics;
+    }
+
+    @Override
+    public void beforeMatchFired(BeforeMatchFiredEvent event) {
+        if (ruleMetrics.isSampling()) {
+            firingStartedAt = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterMatchFired(AfterMatchFiredEvent event) {
+        String rule = event.getMatch().getRule().getName();
+        ruleMetrics.recordFired(rule);
+        if (ruleMetrics.isSampling()) {
+            ruleMetrics.recordExecution(rule, System.nanoTime() - firingStartedAt);
+        }
+    }
+
+    @Override
+    public void objectInserted(ObjectInsertedEvent event) {
+        recordFactChanged(event.getRule());
+    }
+
+    @Override
+    public void objectUpdated(ObjectUpdatedEvent event) {
+        recordFactChanged(event.getRule());
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        recordFactChanged(event.getRule());
+    }
+
+    private void recordFactChanged(Rule rule) {
+        // Null for facts inserted or deleted by the application, only rule changes count
+        if (rule != null) {
+            ruleMetrics.recordFactChanged(rule.getName());
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.pms.validation.service.outbox;
 
-import org.springframework.stereotype.Component;
-
-@Component
+/**
+ * Batch size of one outbox lane, each {@link OutboxEventType} gets its own.
+ */
 public class AdaptiveBatchSizer {
 
     private volatile int current = 10;
@@ -0,0 +1,31 @@
+package com.pms.validation.service.outbox;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Moving average of the dispatchers' claim and confirm transaction times, the
+ * database latency the outbox path currently sees. Background maintenance
+ * (OutboxPurgeEngine) backs off while it is high.
+ */
+@Component
+public class DispatchLatencyTracker {
+
+    // Weight of the newest sample
+    private static final double ALPHA = 0.2;
+
+    // Dispatchers claim at least every fallback poll, older averages are stale
+    private static final long STALE_AFTER_MS = 60_000;
+
+    private double averageMs;
+
+    private long lastSampleAt;
+
+    public synchronized void record(long durationMs) {
+        averageMs = lastSampleAt == 0 ? durationMs : averageMs + ALPHA * (durationMs - averageMs);
+        lastSampleAt = System.currentTimeMillis();
+    }
+
+    public synchronized double averageMs() {
+        return System.currentTimeMillis() - lastSampleAt > STALE_AFTER_MS ? 0 : averageMs;
+    }
+}
@@ -0,0 +1,153 @@
+package com.pms.validation.service.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.entity.InvalidTradeEntity;
+import com.pms.validation.mapper.ProtoInvalidTradeEntityMapper;
+import com.pms.validation.repository.InvalidTradeRepository;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
+import com.pms.rttm.client.dto.DlqEventPayload;
+import com.pms.rttm.client.enums.EventStage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalid trades: validation_invalid_trades to the outgoing invalid trades topic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvalidTradeOutboxEventType implements OutboxEventType<InvalidTradeEntity> {
+
+    private final InvalidTradeRepository invalidTradeRepo;
+
+    private final KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+
+    private final OutboxPayloadSerializer payloadSerializer;
+
+    private final RttmTelemetryEmitter telemetry;
+
+    @Value("${app.outgoing-invalid-trades-topic}")
+    private String invalidTradesTopic;
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    @Override
+    public String name() {
+        return "invalid-trades";
+    }
+
+    @Override
+    public String channel() {
+        return OutboxNotificationListener.INVALID_TRADES_CHANNEL;
+    }
+
+    @Override
+    public List<UUID> findPendingPortfolios(int scan) {
+        return invalidTradeRepo.findPendingPortfolios(scan);
+    }
+
+    @Override
+    public boolean tryLockPortfolio(UUID portfolioId) {
+        return Boolean.TRUE.equals(invalidTradeRepo.tryLockPortfolio(portfolioId));
+    }
+
+    @Override
+    public List<InvalidTradeEntity> lockPendingForPortfolio(UUID portfolioId, int limit) {
+        return invalidTradeRepo.lockPendingForPortfolio(portfolioId, limit);
+    }
+
+    @Override
+    public List<InvalidTradeEntity> lockPendingWithoutPortfolio(int limit) {
+        return invalidTradeRepo.lockPendingWithoutPortfolio(limit);
+    }
+
+    @Override
+    public void markInFlight(List<Long> ids, LocalDateTime since, LocalDateTime leaseExpiresAt) {
+        invalidTradeRepo.markInFlight(ids, since, leaseExpiresAt);
+    }
+
+    @Override
+    public void markAsSent(List<Long> ids, LocalDateTime since) {
+        invalidTradeRepo.markAsSent(ids, since);
+    }
+
+    @Override
+    public void markAsFailed(Long id, LocalDateTime since) {
+        invalidTradeRepo.markAsFailed(id, since);
+    }
+
+    @Override
+    public int releaseClaims(List<Long> ids, LocalDateTime since) {
+        return invalidTradeRepo.releaseClaims(ids, since);
+    }
+
+    @Override
+    public int releaseExpiredLeases(LocalDateTime now) {
+        return invalidTradeRepo.releaseExpiredLeases(now);
+    }
+
+    @Override
+    public Long id(InvalidTradeEntity row) {
+        return row.getInvalidTradeOutboxId();
+    }
+
+    @Override
+    public UUID tradeId(InvalidTradeEntity row) {
+        return row.getTradeId();
+    }
+
+    @Override
+    public UUID portfolioId(InvalidTradeEntity row) {
+        return row.getPortfolioId();
+    }
+
+    @Override
+    public LocalDateTime createdAt(InvalidTradeEntity row) {
+        return row.getCreatedAt();
+    }
+
+    @Override
+    public CompletableFuture<?> send(InvalidTradeEntity invalidTrade) {
+        byte[] payload = invalidTrade.getPayload() != null ? invalidTrade.getPayload()
+                : payloadSerializer.serialize(invalidTrade);
+        return outboxKafkaTemplate.send(invalidTradesTopic,
+                OutboxPayloadSerializer.key(invalidTrade.getPortfolioId()), payload);
+    }
+
+    @Override
+    public byte[] dlqPayload(InvalidTradeEntity invalidTrade) {
+        return ProtoInvalidTradeEntityMapper.toProto(invalidTrade).toByteArray();
+    }
+
+    /**
+     * Send DLQ event to RTTM when invalid trade processing fails
+     */
+    @Override
+    public void sendDlqEvent(InvalidTradeEntity invalidTrade, String errorReason) {
+        try {
+            DlqEventPayload dlqEvent = DlqEventPayload.builder()
+                    .tradeId(invalidTrade.getTradeId().toString())
+                    .serviceName(serviceName)
+                    .topicName("validation_invalid_trades_dlq") // DLQ topic for invalid trades
+                    .originalTopic(invalidTradesTopic)
+                    .reason(errorReason)
+                    .eventStage(EventStage.VALIDATED)
+                    .build();
+
+            telemetry.dlqEvent(dlqEvent);
+            log.debug("Queued DLQ event to RTTM for invalid trade {}", invalidTrade.getTradeId());
+        } catch (Exception ex) {
+            log.warn("Failed to send DLQ event to RTTM: {}", ex.getMessage());
+        }
+    }
+}
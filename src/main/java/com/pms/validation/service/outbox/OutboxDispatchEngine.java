@@ -0,0 +1,401 @@
+package com.pms.validation.service.outbox;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pms.validation.entity.DlqEntry;
+import com.pms.validation.repository.DlqRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatches every {@link OutboxEventType} from one pool of threads.
+ *
+ * Each type is a lane with its own batch sizer and its own backoff. Threads
+ * take the lanes round robin, one batch per turn, so a burst on one type
+ * gets at most its share of the threads and never stalls the other. A lane
+ * that came back empty sleeps until its table is notified or the fallback
+ * interval passes; when every lane sleeps the threads wait on the
+ * notification listener.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDispatchEngine implements SmartLifecycle {
+
+    // Oldest PENDING rows looked at to find portfolio groups to claim
+    private static final int CANDIDATE_SCAN = 500;
+
+    private static final long SYSTEM_FAILURE_BACKOFF_MS = 2000;
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    private final List<OutboxEventType<?>> types;
+
+    private final DlqRepository dlqRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DispatchLatencyTracker latencyTracker;
+
+    private final OutboxNotificationListener notifications;
+
+    // How long a claimed row stays IN_FLIGHT before OutboxLeaseReaper hands it back
+    @Value("${app.outbox.lease:60s}")
+    private Duration lease;
+
+    // Upper bound on the wait after an empty poll, inserts wake the lane earlier
+    @Value("${app.outbox.notify.fallback-poll-ms:5000}")
+    private long fallbackPollMs;
+
+    @Value("${app.outbox.dispatcher-threads:4}")
+    private int threads;
+
+    private final List<Lane<?>> lanes = new ArrayList<>();
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private volatile boolean running = false;
+
+    private static final class Lane<E> {
+        final OutboxEventType<E> type;
+        final AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer();
+        volatile long idleUntil = 0;
+
+        Lane(OutboxEventType<E> type) {
+            this.type = type;
+        }
+    }
+
+    @Override
+    public void start() {
+        for (OutboxEventType<?> type : types) {
+            lanes.add(new Lane<>(type));
+        }
+        running = true;
+        // Threads claim distinct portfolio groups, so they only share the tables
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::loop, "outbox-dispatcher-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        log.info("Outbox dispatch engine started | threads={} types={}", threads,
+                types.stream().map(OutboxEventType::name).toList());
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                Lane<?> lane = nextReadyLane();
+                if (lane == null) {
+                    notifications.awaitAny(untilNextLaneDue());
+                    continue;
+                }
+                run(lane);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The next lane round robin that was notified or whose backoff is over, null when all are idle.
+     */
+    private Lane<?> nextReadyLane() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane<?> lane = lanes.get(Math.floorMod(cursor.getAndIncrement(), lanes.size()));
+            if (notifications.takeNotification(lane.type.channel()) || now >= lane.idleUntil) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private long untilNextLaneDue() {
+        long next = Long.MAX_VALUE;
+        for (Lane<?> lane : lanes) {
+            next = Math.min(next, lane.idleUntil);
+        }
+        return Math.max(1, next - System.currentTimeMillis());
+    }
+
+    private void run(Lane<?> lane) {
+        try {
+            ProcessingResult<?> result = dispatchOnce(lane);
+
+            if (result.systemFailure()) {
+                lane.batchSizer.reset();
+                lane.idleUntil = System.currentTimeMillis() + SYSTEM_FAILURE_BACKOFF_MS;
+            } else if (result.successfulIds().isEmpty() && result.poisonPill() == null) {
+                lane.idleUntil = System.currentTimeMillis() + fallbackPollMs;
+            } else {
+                lane.idleUntil = 0;
+            }
+        } catch (Exception e) {
+            log.error("Outbox dispatch of {} failed", lane.type.name(), e);
+            lane.idleUntil = System.currentTimeMillis() + ERROR_BACKOFF_MS;
+        }
+    }
+
+    /**
+     * Claim, send, confirm. The claim and the confirm are short transactions,
+     * the Kafka sends run between them without a connection or any lock held.
+     */
+    private <E> ProcessingResult<E> dispatchOnce(Lane<E> lane) {
+        OutboxEventType<E> type = lane.type;
+
+        int limit = lane.batchSizer.getCurrentSize();
+        log.info("Limit of this {} batch {}.", type.name(), limit);
+
+        List<E> batch = claim(type, limit);
+
+        log.info("Fetched {} {} events.", batch.size(), type.name());
+
+        if (batch.isEmpty()) {
+            lane.batchSizer.reset();
+            return ProcessingResult.success(List.of());
+        }
+
+        long start = System.currentTimeMillis();
+
+        ProcessingResult<E> result = process(type, batch);
+
+        long duration = System.currentTimeMillis() - start;
+
+        if (!result.systemFailure()) {
+            lane.batchSizer.adjust(duration, batch.size());
+        }
+
+        confirm(type, batch, result);
+
+        return result;
+    }
+
+    private <E> List<E> claim(OutboxEventType<E> type, int limit) {
+        long start = System.currentTimeMillis();
+        List<E> batch = transactionTemplate.execute(status -> {
+            // Rows without a portfolio first: few, and with no group to wait for
+            List<E> claimed = new ArrayList<>(type.lockPendingWithoutPortfolio(limit));
+            // Fill the batch one portfolio group at a time, groups held by another
+            // thread are skipped instead of waited on
+            for (UUID portfolioId : type.findPendingPortfolios(CANDIDATE_SCAN)) {
+                if (claimed.size() >= limit) {
+                    break;
+                }
+                if (type.tryLockPortfolio(portfolioId)) {
+                    claimed.addAll(type.lockPendingForPortfolio(portfolioId, limit - claimed.size()));
+                }
+            }
+            if (!claimed.isEmpty()) {
+                List<Long> ids = claimed.stream().map(type::id).toList();
+                type.markInFlight(ids, oldestCreatedAt(type, claimed), LocalDateTime.now().plus(lease));
+            }
+            return claimed;
+        });
+        latencyTracker.record(System.currentTimeMillis() - start);
+        return batch;
+    }
+
+    private <E> void confirm(OutboxEventType<E> type, List<E> batch, ProcessingResult<E> result) {
+        E poison = result.poisonPill();
+        Long poisonId = poison != null ? type.id(poison) : null;
+        List<Long> unsent = new ArrayList<>();
+        for (E row : batch) {
+            Long id = type.id(row);
+            if (!result.successfulIds().contains(id) && !id.equals(poisonId)) {
+                unsent.add(id);
+            }
+        }
+
+        LocalDateTime since = oldestCreatedAt(type, batch);
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!result.successfulIds().isEmpty()) {
+                type.markAsSent(result.successfulIds(), since);
+                log.info("Updated {} {} events to SENT", result.successfulIds(), type.name());
+            }
+
+            if (poisonId != null) {
+                type.markAsFailed(poisonId, since);
+            }
+
+            // Not attempted or failed on a system error, back to PENDING for the next poll
+            if (!unsent.isEmpty()) {
+                type.releaseClaims(unsent, since);
+            }
+        });
+        latencyTracker.record(System.currentTimeMillis() - start);
+    }
+
+    private static <E> LocalDateTime oldestCreatedAt(OutboxEventType<E> type, List<E> rows) {
+        LocalDateTime oldest = null;
+        for (E row : rows) {
+            LocalDateTime createdAt = type.createdAt(row);
+            if (oldest == null || createdAt.isBefore(oldest)) {
+                oldest = createdAt;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Send a batch in rounds: each round sends the next row of every portfolio
+     * group at once and waits for them, so throughput is bounded by producer
+     * batching across portfolios instead of one acks=all round trip per row,
+     * while a portfolio's rows are never in flight together.
+     *
+     * A failed row stops its group. The rows after it are not sent and go back
+     * to PENDING with it (or after it, when it is dead lettered), so the next
+     * poll sends them in order and nothing of the portfolio overtakes a row
+     * that has to be retried.
+     */
+    private <E> ProcessingResult<E> process(OutboxEventType<E> type, List<E> events) {
+
+        List<Long> successfulIds = new ArrayList<>();
+        E poisonPill = null;
+        Exception poisonError = null;
+        boolean systemFailure = false;
+
+        List<List<E>> open = portfolioGroups(type, events);
+        for (int round = 0; !open.isEmpty(); round++) {
+            List<CompletableFuture<?>> sends = new ArrayList<>(open.size());
+            for (List<E> group : open) {
+                sends.add(send(type, group.get(round)));
+            }
+
+            List<List<E>> next = new ArrayList<>(open.size());
+            for (int g = 0; g < open.size(); g++) {
+                List<E> group = open.get(g);
+                E row = group.get(round);
+                try {
+                    sends.get(g).get();
+
+                    log.info("{} event for trade {} sent to kafka successfully.", type.name(), type.tradeId(row));
+
+                    successfulIds.add(type.id(row));
+                    if (round + 1 < group.size()) {
+                        next.add(group);
+                    }
+
+                } catch (Exception e) {
+                    log.error("Error sending {} event {} : {}", type.name(), type.id(row), e.getMessage());
+
+                    if (!isPoison(e)) {
+                        systemFailure = true;
+                    } else if (poisonPill == null) {
+                        poisonPill = row;
+                        poisonError = e;
+                    }
+                    // Later poison pills are a data problem, not a broker one: they go back
+                    // to PENDING without the system failure backoff and the next poll
+                    // dead letters them in turn
+                }
+            }
+            open = next;
+        }
+
+        if (poisonPill != null && !deadLetter(type, poisonPill, poisonError)) {
+            return ProcessingResult.systemFailure(successfulIds);
+        }
+
+        return new ProcessingResult<>(successfulIds, poisonPill, systemFailure);
+    }
+
+    /**
+     * Rows grouped by portfolio, each group in claim order. Rows without a
+     * portfolio have nothing to keep in order with, each is a group of its own.
+     */
+    private static <E> List<List<E>> portfolioGroups(OutboxEventType<E> type, List<E> rows) {
+        List<List<E>> unkeyed = new ArrayList<>();
+        Map<UUID, List<E>> groups = new LinkedHashMap<>();
+        for (E row : rows) {
+            UUID portfolioId = type.portfolioId(row);
+            if (portfolioId == null) {
+                unkeyed.add(List.of(row));
+            } else {
+                groups.computeIfAbsent(portfolioId, k -> new ArrayList<>()).add(row);
+            }
+        }
+        unkeyed.addAll(groups.values());
+        return unkeyed;
+    }
+
+    private static <E> CompletableFuture<?> send(OutboxEventType<E> type, E row) {
+        try {
+            return type.send(row);
+        } catch (Exception e) {
+            // Mapping or serialization failed before anything was sent
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Simple poison-pill classification: serialization and illegal argument are
+    // considered poison, wherever they sit in the cause chain
+    private static boolean isPoison(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SerializationException
+                    || cause instanceof IllegalArgumentException
+                    || cause instanceof JsonProcessingException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Persist the payload to the DLQ for later inspection, false when that failed.
+     */
+    private <E> boolean deadLetter(OutboxEventType<E> type, E row, Exception e) {
+        try {
+            byte[] payload = new byte[0];
+            try {
+                payload = type.dlqPayload(row);
+            } catch (Exception ex) {
+                // We'll persist empty payload if proto can't be built
+                log.warn("Failed to convert {} event {} to proto for DLQ persistence: {}",
+                        type.name(), type.id(row), ex.getMessage());
+            }
+
+            DlqEntry entry = DlqEntry.builder()
+                    .payload(payload)
+                    .errorDetail(e.toString())
+                    .build();
+
+            dlqRepository.save(entry);
+            log.warn("Persisted {} event {} to DLQ as id {}", type.name(), type.id(row), entry.getDlqEntryid());
+
+            // Send DLQ event to RTTM
+            type.sendDlqEvent(row, e.getMessage());
+            return true;
+        } catch (Exception ex) {
+            log.error("Failed to persist DLQ entry for {} event {}: {}", type.name(), type.id(row), ex.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pms.validation.service.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One kind of outbox event dispatched by {@link OutboxDispatchEngine}: where
+ * its rows live, how they are claimed and settled, and how a row is sent.
+ * The engine owns the claim/send/confirm cycle, the types only adapt their
+ * table and topic to it.
+ *
+ * The status methods take the oldest created_at of the rows involved so the
+ * updates prune to the recent partitions.
+ */
+public interface OutboxEventType<E> {
+
+    /**
+     * Short name for logs and metrics.
+     */
+    String name();
+
+    /**
+     * NOTIFY channel raised by inserts into the type's table.
+     */
+    String channel();
+
+    // Claim: portfolios of the oldest PENDING rows, one advisory lock per
+    // portfolio, then that portfolio's PENDING rows with FOR UPDATE SKIP LOCKED
+
+    List<UUID> findPendingPortfolios(int scan);
+
+    boolean tryLockPortfolio(UUID portfolioId);
+
+    List<E> lockPendingForPortfolio(UUID portfolioId, int limit);
+
+    /**
+     * PENDING rows without a portfolio, claimed with FOR UPDATE SKIP LOCKED
+     * outside any group. None for types whose rows always have one.
+     */
+    default List<E> lockPendingWithoutPortfolio(int limit) {
+        return List.of();
+    }
+
+    void markInFlight(List<Long> ids, LocalDateTime since, LocalDateTime leaseExpiresAt);
+
+    // Confirm
+
+    void markAsSent(List<Long> ids, LocalDateTime since);
+
+    void markAsFailed(Long id, LocalDateTime since);
+
+    int releaseClaims(List<Long> ids, LocalDateTime since);
+
+    int releaseExpiredLeases(LocalDateTime now);
+
+    Long id(E row);
+
+    UUID tradeId(E row);
+
+    /**
+     * Ordering key: rows of a portfolio are sent one after the other.
+     */
+    UUID portfolioId(E row);
+
+    LocalDateTime createdAt(E row);
+
+    /**
+     * Send the row to the type's topic keyed by portfolio, without waiting.
+     */
+    CompletableFuture<?> send(E row);
+
+    /**
+     * Payload kept in validation_dlq_entry for a poison pill.
+     */
+    byte[] dlqPayload(E row);
+
+    void sendDlqEvent(E row, String reason);
+}
@@ -0,0 +1,34 @@
+package com.pms.validation.service.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands IN_FLIGHT rows whose lease expired back to PENDING, so rows claimed
+ * by a dispatcher that died between claim and confirm are sent again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxLeaseReaper {
+
+    private final List<OutboxEventType<?>> types;
+
+    @Scheduled(fixedDelayString = "${app.outbox.reaper-interval-ms:30000}")
+    public void releaseExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (OutboxEventType<?> type : types) {
+            int released = type.releaseExpiredLeases(now);
+            if (released > 0) {
+                log.warn("Reclaimed {} expired outbox leases of {}", released, type.name());
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.pms.validation.service.outbox;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Wakes the outbox dispatch engine when rows are inserted. The insert
+ * triggers on validation_outbox and validation_invalid_trades pg_notify a
+ * channel named after the table; this component LISTENs on both over its own
+ * connection (outside the pool, it is held for the life of the pod).
+ *
+ * A notified channel stays flagged until the engine takes it with
+ * {@link #takeNotification}. Idle engine threads park in {@link #awaitAny}
+ * until any channel is flagged or their fallback timeout passes, so a lost
+ * connection or a disabled listener only costs latency.
+ */
+@Component
+@Slf4j
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    public static final String VALIDATION_OUTBOX_CHANNEL = "validation_outbox";
+    public static final String INVALID_TRADES_CHANNEL = "validation_invalid_trades";
+
+    private static final List<String> CHANNELS = List.of(VALIDATION_OUTBOX_CHANNEL, INVALID_TRADES_CHANNEL);
+
+    private static final int RECEIVE_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    // Several inserts before the next take are one wakeup
+    private final Set<String> notified = ConcurrentHashMap.newKeySet();
+
+    private final Object monitor = new Object();
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${app.outbox.notify.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean running = false;
+
+    private Thread thread;
+
+    /**
+     * Clear the channel's flag, true when it was notified since the last take.
+     */
+    public boolean takeNotification(String channel) {
+        return notified.remove(channel);
+    }
+
+    /**
+     * Block until some channel is notified or the timeout elapses.
+     */
+    public void awaitAny(long timeoutMs) throws InterruptedException {
+        synchronized (monitor) {
+            if (notified.isEmpty()) {
+                monitor.wait(timeoutMs);
+            }
+        }
+    }
+
+    private void signal(String channel) {
+        if (CHANNELS.contains(channel) && notified.add(channel)) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Outbox LISTEN/NOTIFY disabled, the dispatch engine polls on its fallback interval");
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "outbox-notification-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : CHANNELS) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                log.info("Listening for outbox notifications on {}", CHANNELS);
+
+                // Rows inserted while not listening
+                CHANNELS.forEach(this::signal);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            signal(notification.getName());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("Outbox notification connection lost, reconnecting in {}ms: {}", RECONNECT_DELAY_MS,
+                        e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
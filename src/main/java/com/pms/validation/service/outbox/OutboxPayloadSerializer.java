@@ -0,0 +1,79 @@
+package com.pms.validation.service.outbox;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.entity.InvalidTradeEntity;
+import com.pms.validation.entity.ValidationOutboxEntity;
+import com.pms.validation.mapper.ProtoEntityMapper;
+import com.pms.validation.mapper.ProtoInvalidTradeEntityMapper;
+import com.pms.validation.proto.InvalidTradeEventProto;
+import com.pms.validation.proto.TradeEventProto;
+
+import io.confluent.kafka.serializers.protobuf.KafkaProtobufSerializer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Serializes outbox rows into the record values the dispatcher sends: the
+ * protobuf message in the schema registry wire format (magic byte, schema id,
+ * message indexes) of the row's topic, exactly what KafkaProtobufSerializer
+ * would have produced in the producer.
+ *
+ * The validation path stores the result in the payload column so dispatching
+ * a row is a pass-through of bytes. Rows without a payload (written before
+ * the column existed) are serialized here at dispatch time instead.
+ */
+@Component
+public class OutboxPayloadSerializer {
+
+    @Value("${app.outgoing-valid-trades-topic}")
+    private String validTradesTopic;
+
+    @Value("${app.outgoing-invalid-trades-topic}")
+    private String invalidTradesTopic;
+
+    @Value("${schema.registry.url}")
+    private String schemaRegistryUrl;
+
+    private KafkaProtobufSerializer<TradeEventProto> tradeSerializer;
+
+    private KafkaProtobufSerializer<InvalidTradeEventProto> invalidTradeSerializer;
+
+    @PostConstruct
+    void init() {
+        // Same settings as the value serializer of the producers, so the schema ids match
+        Map<String, Object> config = Map.of("schema.registry.url", schemaRegistryUrl);
+
+        tradeSerializer = new KafkaProtobufSerializer<>();
+        tradeSerializer.configure(config, false);
+
+        invalidTradeSerializer = new KafkaProtobufSerializer<>();
+        invalidTradeSerializer.configure(config, false);
+    }
+
+    public byte[] serialize(ValidationOutboxEntity outbox) {
+        return tradeSerializer.serialize(validTradesTopic, ProtoEntityMapper.toProto(outbox));
+    }
+
+    public byte[] serialize(InvalidTradeEntity invalidTrade) {
+        return invalidTradeSerializer.serialize(invalidTradesTopic,
+                ProtoInvalidTradeEntityMapper.toProto(invalidTrade));
+    }
+
+    /**
+     * Record key of a row: the portfolio, so a portfolio's events stay in order on one partition.
+     */
+    public static String key(UUID portfolioId) {
+        return portfolioId != null ? portfolioId.toString() : "";
+    }
+
+    @PreDestroy
+    void close() {
+        tradeSerializer.close();
+        invalidTradeSerializer.close();
+    }
+}
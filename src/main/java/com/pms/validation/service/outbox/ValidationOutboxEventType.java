@@ -0,0 +1,186 @@
+package com.pms.validation.service.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.entity.ValidationOutboxEntity;
+import com.pms.validation.mapper.ProtoEntityMapper;
+import com.pms.validation.repository.ValidationOutboxRepository;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
+import com.pms.rttm.client.dto.DlqEventPayload;
+import com.pms.rttm.client.dto.TradeEventPayload;
+import com.pms.rttm.client.enums.EventStage;
+import com.pms.rttm.client.enums.EventType;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Valid trades: validation_outbox to the outgoing valid trades topic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ValidationOutboxEventType implements OutboxEventType<ValidationOutboxEntity> {
+
+    private final ValidationOutboxRepository outboxRepo;
+
+    private final KafkaTemplate<String, byte[]> outboxKafkaTemplate;
+
+    private final OutboxPayloadSerializer payloadSerializer;
+
+    private final RttmTelemetryEmitter telemetry;
+
+    @Value("${app.outgoing-valid-trades-topic}")
+    private String validTradesTopic;
+
+    @Value("${app.incoming-trades-topic}")
+    private String incomingTradesTopic;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String consumerGroup;
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    @Override
+    public String name() {
+        return "valid-trades";
+    }
+
+    @Override
+    public String channel() {
+        return OutboxNotificationListener.VALIDATION_OUTBOX_CHANNEL;
+    }
+
+    @Override
+    public List<UUID> findPendingPortfolios(int scan) {
+        return outboxRepo.findPendingPortfolios(scan);
+    }
+
+    @Override
+    public boolean tryLockPortfolio(UUID portfolioId) {
+        return Boolean.TRUE.equals(outboxRepo.tryLockPortfolio(portfolioId));
+    }
+
+    @Override
+    public List<ValidationOutboxEntity> lockPendingForPortfolio(UUID portfolioId, int limit) {
+        return outboxRepo.lockPendingForPortfolio(portfolioId, limit);
+    }
+
+    @Override
+    public void markInFlight(List<Long> ids, LocalDateTime since, LocalDateTime leaseExpiresAt) {
+        outboxRepo.markInFlight(ids, since, leaseExpiresAt);
+    }
+
+    @Override
+    public void markAsSent(List<Long> ids, LocalDateTime since) {
+        outboxRepo.markAsSent(ids, since);
+    }
+
+    @Override
+    public void markAsFailed(Long id, LocalDateTime since) {
+        outboxRepo.markAsFailed(id, since);
+    }
+
+    @Override
+    public int releaseClaims(List<Long> ids, LocalDateTime since) {
+        return outboxRepo.releaseClaims(ids, since);
+    }
+
+    @Override
+    public int releaseExpiredLeases(LocalDateTime now) {
+        return outboxRepo.releaseExpiredLeases(now);
+    }
+
+    @Override
+    public Long id(ValidationOutboxEntity row) {
+        return row.getValidationOutboxId();
+    }
+
+    @Override
+    public UUID tradeId(ValidationOutboxEntity row) {
+        return row.getTradeId();
+    }
+
+    @Override
+    public UUID portfolioId(ValidationOutboxEntity row) {
+        return row.getPortfolioId();
+    }
+
+    @Override
+    public LocalDateTime createdAt(ValidationOutboxEntity row) {
+        return row.getCreatedAt();
+    }
+
+    @Override
+    public CompletableFuture<?> send(ValidationOutboxEntity outbox) {
+        // Don't Send trade completion event to RTTM again for same trade id
+        // Send trade completion event to RTTM
+        // sendTradeCompletionEvent(outbox, partition, offset);
+        byte[] payload = outbox.getPayload() != null ? outbox.getPayload() : payloadSerializer.serialize(outbox);
+        return outboxKafkaTemplate.send(validTradesTopic, OutboxPayloadSerializer.key(outbox.getPortfolioId()),
+                payload);
+    }
+
+    @Override
+    public byte[] dlqPayload(ValidationOutboxEntity outbox) {
+        return ProtoEntityMapper.toProto(outbox).toByteArray();
+    }
+
+    /**
+     * Send trade completion event to RTTM
+     */
+    @SuppressWarnings("unused")
+    private void sendTradeCompletionEvent(ValidationOutboxEntity outbox, int partition, long offset) {
+        try {
+            TradeEventPayload event = TradeEventPayload.builder()
+                    .tradeId(outbox.getTradeId().toString())
+                    .serviceName(serviceName)
+                    .eventType(EventType.TRADE_VALIDATED)
+                    .eventStage(EventStage.VALIDATED)
+                    .eventStatus("OK")
+                    .sourceQueue(incomingTradesTopic)
+                    .targetQueue(validTradesTopic)
+                    .message("Trade dispatched to downstream service")
+                    .topicName(validTradesTopic)
+                    .offsetValue(offset)
+                    .partitionId(partition)
+                    .consumerGroup(consumerGroup)
+                    .build();
+
+            telemetry.tradeEvent(event);
+            log.debug("Queued trade completion event to RTTM for trade {}", outbox.getTradeId());
+        } catch (Exception ex) {
+            log.warn("Failed to send trade completion event to RTTM: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Send DLQ event to RTTM when outbox processing fails
+     */
+    @Override
+    public void sendDlqEvent(ValidationOutboxEntity outbox, String errorReason) {
+        try {
+            DlqEventPayload dlqEvent = DlqEventPayload.builder()
+                    .tradeId(outbox.getTradeId().toString())
+                    .serviceName(serviceName)
+                    .topicName("validation_outbox") // change our own DLT Topic if needed which is not present
+                    .originalTopic(validTradesTopic)
+                    .reason(errorReason)
+                    .eventStage(EventStage.VALIDATED)
+                    .build();
+
+            telemetry.dlqEvent(dlqEvent);
+            log.debug("Queued DLQ event to RTTM for trade {}", outbox.getTradeId());
+        } catch (Exception ex) {
+            log.warn("Failed to send DLQ event to RTTM: {}", ex.getMessage());
+        }
+    }
+}
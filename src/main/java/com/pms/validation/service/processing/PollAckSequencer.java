@@ -0,0 +1,55 @@
+package com.pms.validation.service.processing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Acknowledges polls in the order they were consumed.
+ *
+ * A poll split across workers is only done when every part is flushed, and a
+ * batch ack commits every partition of the poll. Acking out of order could
+ * commit an older poll's offsets after a newer one's, moving a partition's
+ * committed offset backwards, so a finished poll waits for all earlier ones.
+ */
+@Slf4j
+class PollAckSequencer {
+
+    private final Deque<PendingPoll> pending = new ArrayDeque<>();
+
+    synchronized PendingPoll register(Acknowledgment ack, int parts) {
+        PendingPoll poll = new PendingPoll(ack, parts);
+        pending.addLast(poll);
+        return poll;
+    }
+
+    void partDone(PendingPoll poll) {
+        if (poll.remaining.decrementAndGet() == 0) {
+            drain();
+        }
+    }
+
+    private synchronized void drain() {
+        while (!pending.isEmpty() && pending.peekFirst().remaining.get() == 0) {
+            try {
+                pending.pollFirst().ack.acknowledge();
+            } catch (Exception ex) {
+                log.warn("Failed to acknowledge poll: {}", ex.getMessage());
+            }
+        }
+    }
+
+    static final class PendingPoll {
+        private final Acknowledgment ack;
+        private final AtomicInteger remaining;
+
+        private PendingPoll(Acknowledgment ack, int parts) {
+            this.ack = ack;
+            this.remaining = new AtomicInteger(parts);
+        }
+    }
+}
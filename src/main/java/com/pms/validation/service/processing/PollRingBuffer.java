@@ -0,0 +1,148 @@
+package com.pms.validation.service.processing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.pms.validation.wrapper.PollBatch;
+
+/**
+ * Bounded single-producer/single-consumer ring of polls, budgeted in records
+ * and estimated heap bytes.
+ *
+ * The producer is the Kafka listener thread and the consumer is whichever
+ * thread holds the owning worker's flush lock, so head and tail each have a
+ * single writer and need no CAS. Slots are preallocated: one per record of
+ * budget, since every poll holds at least one record the slots can never run
+ * out before the record budget does.
+ */
+public class PollRingBuffer {
+
+    // Upper bound on a producer park, a missed unpark only costs this much
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final PollBatch[] slots;
+    private final int mask;
+    private final long maxRecords;
+    private final long maxBytes;
+
+    // Next slot to read, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to write, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile Thread waitingProducer;
+
+    public PollRingBuffer(int maxRecords, long maxBytes) {
+        int capacity = Integer.highestOneBit(Math.max(maxRecords, 2) - 1) << 1;
+        this.slots = new PollBatch[capacity];
+        this.mask = capacity - 1;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add a poll if both budgets allow. A poll larger than a whole budget is
+     * still accepted into an empty buffer so it cannot wedge.
+     */
+    public boolean offer(PollBatch poll) {
+        long t = tail.get();
+        if (t - head.get() == slots.length) {
+            return false;
+        }
+
+        int size = poll.getTradeProtos().size();
+        long queued = records.get();
+        if (queued > 0 && (queued + size > maxRecords || bytes.get() + poll.getEstimatedBytes() > maxBytes)) {
+            return false;
+        }
+
+        slots[(int) (t & mask)] = poll;
+        records.addAndGet(size);
+        bytes.addAndGet(poll.getEstimatedBytes());
+        // Publishes the slot write to the consumer
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Wait for room and add the poll. Returns the nanoseconds spent waiting.
+     */
+    public long put(PollBatch poll) throws InterruptedException {
+        if (offer(poll)) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        waitingProducer = Thread.currentThread();
+        try {
+            while (!offer(poll)) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waitingProducer = null;
+        }
+        return System.nanoTime() - start;
+    }
+
+    public PollBatch peek() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        return slots[(int) (h & mask)];
+    }
+
+    public PollBatch poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+
+        int index = (int) (h & mask);
+        PollBatch poll = slots[index];
+        slots[index] = null;
+        records.addAndGet(-poll.getTradeProtos().size());
+        bytes.addAndGet(-poll.getEstimatedBytes());
+        head.lazySet(h + 1);
+
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        return poll;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Number of polls queued.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long records() {
+        return records.get();
+    }
+
+    public long maxRecords() {
+        return maxRecords;
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+}
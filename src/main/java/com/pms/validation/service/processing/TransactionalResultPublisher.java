@@ -0,0 +1,74 @@
+package com.pms.validation.service.processing;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka side of app.pipeline.mode=transactional: the results of a batch and
+ * the consumed offsets of its trades go out in one Kafka transaction.
+ *
+ * Either both are visible (to read_committed consumers) or neither, so a
+ * crash before the commit replays the batch from the last committed offsets
+ * without duplicates downstream. The offsets are committed with the group
+ * metadata of the consumer, a batch from a consumer that has since lost its
+ * partitions in a rebalance fails the commit instead of overwriting the new
+ * owner's progress.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pipeline.mode", havingValue = "transactional")
+@Slf4j
+public class TransactionalResultPublisher {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    public TransactionalResultPublisher(
+            @Qualifier("transactionalKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    /**
+     * Send the records and commit the offsets in one transaction, aborted
+     * (and the exception rethrown) when any send or the offset commit fails.
+     */
+    public void publish(List<ProducerRecord<String, byte[]>> records, Map<TopicPartition, OffsetAndMetadata> offsets,
+            ConsumerGroupMetadata groupMetadata) {
+        kafkaTemplate.executeInTransaction(operations -> {
+            for (ProducerRecord<String, byte[]> record : records) {
+                operations.send(record);
+            }
+            operations.sendOffsetsToTransaction(offsets, groupMetadata);
+            return null;
+        });
+        log.info("Committed {} results with offsets {} in one transaction", records.size(), offsets);
+    }
+
+    /**
+     * Offsets to commit for a batch: per partition the one after the highest
+     * offset consumed.
+     */
+    public static Map<TopicPartition, OffsetAndMetadata> nextOffsets(String topic, List<Integer> partitions,
+            List<Long> offsets) {
+        Map<TopicPartition, OffsetAndMetadata> next = new HashMap<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            TopicPartition partition = new TopicPartition(topic, partitions.get(i));
+            long offset = offsets.get(i) + 1;
+            OffsetAndMetadata current = next.get(partition);
+            if (current == null || current.offset() < offset) {
+                next.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        return next;
+    }
+}
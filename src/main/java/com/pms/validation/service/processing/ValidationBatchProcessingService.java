@@ -1,27 +1,37 @@
 package com.pms.validation.service.processing;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.stream.Collectors;
 
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.pms.validation.dto.TradeDto;
 import com.pms.validation.entity.InvalidTradeEntity;
 import com.pms.validation.entity.ValidationOutboxEntity;
 import com.pms.validation.proto.TradeEventProto;
+import com.pms.validation.repository.DlqRepository;
 import com.pms.validation.repository.InvalidTradeRepository;
+import com.pms.validation.repository.TradeCopyRepository;
 import com.pms.validation.repository.ValidationOutboxRepository;
 import com.pms.validation.mapper.ProtoDTOMapper;
 import com.pms.validation.service.domain.TradeIdempotencyService;
-import com.pms.rttm.client.clients.RttmClient;
+import com.pms.validation.service.outbox.OutboxPayloadSerializer;
+import com.pms.validation.service.reference.ReferenceData;
+import com.pms.validation.service.reference.ReferenceDataResolver;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
 import com.pms.rttm.client.dto.TradeEventPayload;
 import com.pms.rttm.client.dto.ErrorEventPayload;
 import com.pms.rttm.client.enums.EventType;
@@ -42,17 +52,37 @@ public class ValidationBatchProcessingService {
     @Autowired
     private ValidationCore validationCore;
 
+    @Autowired
+    private ReferenceDataResolver referenceDataResolver;
+
     @Autowired
     private ValidationOutboxRepository validationOutboxRepository;
 
     @Autowired
     private InvalidTradeRepository invalidTradeRepository;
 
+    @Autowired
+    private TradeCopyRepository tradeCopyRepository;
+
+    // copy: one COPY (FORMAT binary) per table, jpa: saveAll through Hibernate
+    @Value("${app.persistence.insert-mode:copy}")
+    private String insertMode;
+
+    // Present when app.pipeline.mode=transactional
+    @Autowired(required = false)
+    private TransactionalResultPublisher transactionalPublisher;
+
+    @Autowired
+    private OutboxPayloadSerializer payloadSerializer;
+
+    @Autowired
+    private DlqRepository dlqRepository;
+
     @Autowired(required = false)
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private RttmClient rttmClient;
+    private RttmTelemetryEmitter telemetry;
 
     @Value("${app.outgoing-valid-trades-topic}")
     private String validTradesTopic;
@@ -72,139 +102,240 @@ public class ValidationBatchProcessingService {
                 .map(ProtoDTOMapper::toDto)
                 .collect(Collectors.toList());
 
-        // collect ids which were successfully processed in this transaction
-        List<UUID> successfulIds = new ArrayList<>();
-        // ids for which we acquired a Redis PROCESSING reservation
-        List<UUID> reservedIds = new ArrayList<>();
+        // Portfolio ids and symbols are resolved once for the whole batch
+        ReferenceData referenceData = referenceDataResolver.resolve(dtos);
+
 
         // Collect entities for batch persistence
         List<ValidationOutboxEntity> outboxToSave = new ArrayList<>();
         List<InvalidTradeEntity> invalidToSave = new ArrayList<>();
 
+        // Sent to RTTM once the batch committed, a rolled back batch is reported on replay
+        List<TradeEventPayload> validatedEvents = new ArrayList<>();
+
+        // Trades that passed the idempotency checks, with their positions in the batch
+        List<TradeDto> candidates = new ArrayList<>();
+        List<Integer> candidateIndexes = new ArrayList<>();
+
+        // Distinct trade ids of the batch, duplicates are dropped locally before Redis
+        Set<UUID> seenIds = new HashSet<>();
+        List<UUID> claimIds = new ArrayList<>();
+        List<Integer> claimIndexes = new ArrayList<>();
+
         for (int i = 0; i < dtos.size(); i++) {
             TradeDto dto = dtos.get(i);
-            Long offset = (offsets != null && i < offsets.size()) ? offsets.get(i) : 0L;
-            Integer partition = (partitions != null && i < partitions.size()) ? partitions.get(i) : 0;
             // idempotency check
             if (dto.getTradeId() == null) {
                 log.warn("Skipping trade with null id");
                 continue;
             }
-
-            // Try to reserve processing for this trade to avoid race with other consumers
-            if (idempotencyService.isDone(dto.getTradeId())) {
-                log.info("Trade already done, skipping | tradeId={}", dto.getTradeId());
+            if (!seenIds.add(dto.getTradeId())) {
+                log.info("Duplicate trade in batch, skipping | tradeId={}", dto.getTradeId());
                 continue;
             }
+            claimIds.add(dto.getTradeId());
+            claimIndexes.add(i);
+        }
 
-            boolean reserved = idempotencyService.tryStartProcessing(dto.getTradeId());
-            if (!reserved) {
-                log.info("Trade already being processed by another worker, skipping | tradeId={}", dto.getTradeId());
-                continue;
-            }
-            reservedIds.add(dto.getTradeId());
-
-            try {
-                // Evaluate rules and build entities (do not persist here)
-                ValidationDecision decision = validationCore.evaluate(dto);
-
-                if (decision.isValid()) {
-                    outboxToSave.add(decision.getOutboxEntity());
-                    sendTradeValidationEvent(dto, true, null, partition, offset, topic, consumerGroup);
-                } else {
-                    invalidToSave.add(decision.getInvalidEntity());
-                    // Here you're sending invalid trades in rttm.trade.events topic which is meant
-                    // only for valid trades,
-                    // so send in invalid-trades-topic which the Invalid Outbox does.
-                    // sendTradeValidationEvent(dto, false,
-                    // decision.getInvalidEntity().getValidationErrors(), partition,
-                    // offset, topic, consumerGroup);
+        // One round trip: skip DONE trades and claim the rest to avoid races with
+        // other consumers. Claims commit or roll back with this transaction
+        List<TradeIdempotencyService.ClaimState> claims = idempotencyService.claimBatch(claimIds, consumerGroup,
+                topic);
+
+        for (int c = 0; c < claimIds.size(); c++) {
+            UUID tradeId = claimIds.get(c);
+            switch (claims.get(c)) {
+                case DONE -> log.info("Trade already done, skipping | tradeId={}", tradeId);
+                case CONTENDED ->
+                    log.info("Trade already being processed by another worker, skipping | tradeId={}", tradeId);
+                case RESERVED -> {
+                    int i = claimIndexes.get(c);
+                    candidates.add(dtos.get(i));
+                    candidateIndexes.add(i);
                 }
+            }
+        }
 
-                successfulIds.add(dto.getTradeId());
+        List<ValidationDecision> decisions;
+        try {
+            // Evaluate rules for the whole batch in one session and build entities (do
+            // not persist here)
+            decisions = validationCore.evaluateBatch(candidates, referenceData);
+        } catch (Exception ex) {
+            log.error("Error evaluating batch of {} trades", candidates.size(), ex);
+            // Send error event to RTTM, the whole batch is rolled back and retried
+            for (int c = 0; c < candidates.size(); c++) {
+                int i = candidateIndexes.get(c);
+                sendErrorEvent(candidates.get(c), ex.getMessage(), partitionAt(partitions, i), offsetAt(offsets, i),
+                        topic, consumerGroup);
+            }
+            throw ex; // let listener pause and handle
+        }
 
-            } catch (Exception ex) {
-                log.error("Error evaluating trade {} in batch", dto.getTradeId(), ex);
-                // Send error event to RTTM
-                sendErrorEvent(dto, ex.getMessage(), partition, offset, topic, consumerGroup);
-                throw ex; // let listener pause and handle
+        for (int c = 0; c < candidates.size(); c++) {
+            TradeDto dto = candidates.get(c);
+            ValidationDecision decision = decisions.get(c);
+            int i = candidateIndexes.get(c);
+
+            if (decision.isValid()) {
+                outboxToSave.add(decision.getOutboxEntity());
+                validatedEvents.add(tradeValidationEvent(dto, partitionAt(partitions, i), offsetAt(offsets, i), topic,
+                        consumerGroup));
+            } else {
+                invalidToSave.add(decision.getInvalidEntity());
+                // Here you're sending invalid trades in rttm.trade.events topic which is meant
+                // only for valid trades,
+                // so send in invalid-trades-topic which the Invalid Outbox does.
+                // sendTradeValidationEvent(dto, false,
+                // decision.getInvalidEntity().getValidationErrors(), partition,
+                // offset, topic, consumerGroup);
             }
         }
 
         // Persist entities in batch within the same transaction
+        boolean copy = "copy".equalsIgnoreCase(insertMode);
         if (!outboxToSave.isEmpty()) {
-            validationOutboxRepository.saveAll(outboxToSave);
+            if (copy) {
+                tradeCopyRepository.copyOutbox(outboxToSave);
+            } else {
+                validationOutboxRepository.saveAll(outboxToSave);
+            }
             log.info("Saved {} outbox entries in batch.", outboxToSave.size());
         }
 
         if (!invalidToSave.isEmpty()) {
-            invalidTradeRepository.saveAll(invalidToSave);
+            if (copy) {
+                tradeCopyRepository.copyInvalidTrades(invalidToSave);
+            } else {
+                invalidTradeRepository.saveAll(invalidToSave);
+            }
             log.info("Saved {} invalid trade entries in batch.", invalidToSave.size());
         }
 
-        // Register synchronization to:
-        // - mark DONE after commit for successfulIds
-        // - clear PROCESSING reservation for reservedIds if transaction rolled back or
-        // the id was not successful
-        if (!reservedIds.isEmpty()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    for (UUID id : successfulIds) {
-                        try {
-                            idempotencyService.markDone(id);
-                        } catch (Exception ex) {
-                            log.error("Failed to mark idempotency DONE for {}", id, ex);
-                        }
-                    }
-                }
-
-                @Override
-                public void afterCompletion(int status) {
-                    // If transaction did not commit, release PROCESSING reservations for those we
-                    // reserved
-                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
-                        for (UUID id : reservedIds) {
-                            if (!successfulIds.contains(id)) {
-                                try {
-                                    idempotencyService.clearProcessing(id);
-                                } catch (Exception ex) {
-                                    log.error("Failed to clear PROCESSING for {}", id, ex);
-                                }
-                            }
-                        }
-                    }
-                }
-            });
-        }
+        telemetry.emitAfterCommit(validatedEvents);
     }
 
     /**
-     * Send trade validation event to RTTM
+     * app.pipeline.mode=transactional: validate and publish the results straight
+     * to the outgoing topics, in one Kafka transaction with the consumed offsets.
+     * No outbox rows and no Redis claims: a batch that does not commit is read
+     * again from the committed offsets and its aborted results are invisible to
+     * read_committed consumers.
      */
-    private void sendTradeValidationEvent(TradeDto trade, boolean valid, String errors, int partition, Long offset,
-            String topic, String consumerGroup) {
-        try {
-            TradeEventPayload event = TradeEventPayload.builder()
-                    .tradeId(trade.getTradeId().toString())
-                    .topicName(topic)
-                    .offsetValue(offset)
-                    .partitionId(partition)
-                    .consumerGroup(consumerGroup)
-                    .serviceName(serviceName)
-                    .eventType(EventType.TRADE_VALIDATED)
-                    .eventStage(EventStage.VALIDATED)
-                    .eventStatus("OK")
-                    .sourceQueue(topic)
-                    .targetQueue(validTradesTopic)
-                    .message("Trade validation passed")
-                    .build();
+    public void processBatchTransactional(List<TradeEventProto> messages, List<Integer> partitions, String topic,
+            List<Long> offsets, ConsumerGroupMetadata groupMetadata) {
+        log.info("Processing transactional validation batch of {} trades.", messages.size());
+        String consumerGroup = groupMetadata != null ? groupMetadata.groupId() : null;
+
+        List<TradeDto> dtos = messages.stream()
+                .map(ProtoDTOMapper::toDto)
+                .collect(Collectors.toList());
+
+        ReferenceData referenceData = referenceDataResolver.resolve(dtos);
+
+        // Duplicates within the batch are still dropped, redeliveries are handled by the transaction
+        List<TradeDto> candidates = new ArrayList<>();
+        List<Integer> candidateIndexes = new ArrayList<>();
+        Set<UUID> seenIds = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            TradeDto dto = dtos.get(i);
+            if (dto.getTradeId() == null) {
+                log.warn("Skipping trade with null id");
+                continue;
+            }
+            if (!seenIds.add(dto.getTradeId())) {
+                log.info("Duplicate trade in batch, skipping | tradeId={}", dto.getTradeId());
+                continue;
+            }
+            candidates.add(dto);
+            candidateIndexes.add(i);
+        }
 
-            rttmClient.sendTradeEvent(event);
-            log.debug("Sent Trade event (Valid Trade) to RTTM for trade {}", trade.getTradeId());
+        List<ValidationDecision> decisions;
+        try {
+            decisions = validationCore.evaluateBatch(candidates, referenceData);
         } catch (Exception ex) {
-            log.warn("Failed to send trade validation event to RTTM: {}", ex.getMessage());
+            log.error("Error evaluating batch of {} trades", candidates.size(), ex);
+            for (int c = 0; c < candidates.size(); c++) {
+                int i = candidateIndexes.get(c);
+                sendErrorEvent(candidates.get(c), ex.getMessage(), partitionAt(partitions, i), offsetAt(offsets, i),
+                        topic, consumerGroup);
+            }
+            throw ex;
         }
+
+        List<ProducerRecord<String, byte[]>> records = new ArrayList<>(decisions.size());
+        List<Integer> validCandidates = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            ValidationDecision decision = decisions.get(c);
+            int i = candidateIndexes.get(c);
+            try {
+                if (decision.isValid()) {
+                    ValidationOutboxEntity outbox = decision.getOutboxEntity();
+                    byte[] payload = outbox.getPayload() != null ? outbox.getPayload()
+                            : payloadSerializer.serialize(outbox);
+                    records.add(new ProducerRecord<>(validTradesTopic,
+                            OutboxPayloadSerializer.key(outbox.getPortfolioId()), payload));
+                    validCandidates.add(c);
+                } else {
+                    InvalidTradeEntity invalidTrade = decision.getInvalidEntity();
+                    byte[] payload = invalidTrade.getPayload() != null ? invalidTrade.getPayload()
+                            : payloadSerializer.serialize(invalidTrade);
+                    records.add(new ProducerRecord<>(invalidTradesTopic,
+                            OutboxPayloadSerializer.key(invalidTrade.getPortfolioId()), payload));
+                }
+            } catch (Exception ex) {
+                // Would fail every replay of the batch, park the incoming trade instead.
+                // Keyed by trade id: an aborted and replayed batch parks it only once,
+                // and it is stored before its offset can be committed
+                UUID tradeId = candidates.get(c).getTradeId();
+                log.error("Failed to serialize result of trade {}, moving it to the DLQ: {}", tradeId,
+                        ex.getMessage());
+                dlqRepository.parkTrade(tradeId, messages.get(i).toByteArray(), ex.toString());
+            }
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> consumed = TransactionalResultPublisher.nextOffsets(topic, partitions,
+                offsets);
+        transactionalPublisher.publish(records, consumed, groupMetadata);
+
+        // Only once the results are committed
+        List<TradeEventPayload> validatedEvents = new ArrayList<>(validCandidates.size());
+        for (int c : validCandidates) {
+            int i = candidateIndexes.get(c);
+            validatedEvents.add(tradeValidationEvent(candidates.get(c), partitionAt(partitions, i),
+                    offsetAt(offsets, i), topic, consumerGroup));
+        }
+        telemetry.emitAfterCommit(validatedEvents);
+    }
+
+    private static int partitionAt(List<Integer> partitions, int index) {
+        return (partitions != null && index < partitions.size()) ? partitions.get(index) : 0;
+    }
+
+    private static Long offsetAt(List<Long> offsets, int index) {
+        return (offsets != null && index < offsets.size()) ? offsets.get(index) : 0L;
+    }
+
+    /**
+     * Trade validation event for RTTM
+     */
+    private TradeEventPayload tradeValidationEvent(TradeDto trade, int partition, Long offset, String topic,
+            String consumerGroup) {
+        return TradeEventPayload.builder()
+                .tradeId(trade.getTradeId().toString())
+                .topicName(topic)
+                .offsetValue(offset)
+                .partitionId(partition)
+                .consumerGroup(consumerGroup)
+                .serviceName(serviceName)
+                .eventType(EventType.TRADE_VALIDATED)
+                .eventStage(EventStage.VALIDATED)
+                .eventStatus("OK")
+                .sourceQueue(topic)
+                .targetQueue(validTradesTopic)
+                .message("Trade validation passed")
+                .build();
     }
 
     /**
@@ -221,8 +352,8 @@ public class ValidationBatchProcessingService {
                     .eventStage(EventStage.VALIDATED)
                     .build();
 
-            rttmClient.sendErrorEvent(errorEvent);
-            log.debug("Sent error event to RTTM for trade {}", trade.getTradeId());
+            telemetry.errorEvent(errorEvent);
+            log.debug("Queued error event to RTTM for trade {}", trade.getTradeId());
         } catch (Exception ex) {
             log.warn("Failed to send error event to RTTM: {}", ex.getMessage());
         }
@@ -2,25 +2,39 @@ package com.pms.validation.service.processing;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
 
 import com.pms.validation.proto.TradeEventProto;
+import com.pms.validation.service.processing.PollAckSequencer.PendingPoll;
+import com.pms.validation.service.rules.RuleSetManager;
 import com.pms.validation.wrapper.PollBatch;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -33,9 +47,6 @@ public class ValidationBatchProcessor implements SmartLifecycle {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    @Autowired
-    private LinkedBlockingDeque<PollBatch> validationBuffer;
-
     @Autowired
     @Qualifier("validationBatchExecutor")
     private ThreadPoolTaskExecutor batchExecutor;
@@ -51,41 +62,255 @@ public class ValidationBatchProcessor implements SmartLifecycle {
     @Autowired
     private ValidationBatchProcessingService validationBatchProcessingService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Absent when app.validation.engine=compiled
+    @Autowired(required = false)
+    private RuleSetManager ruleSetManager;
+
     @Value("${app.validation.batch.size:1000}")
     private int BATCH_SIZE;
 
-    @Value("${app.buffer.size:50}")
+    // Intake budgets for the whole pod, split evenly across the workers
+    @Value("${app.buffer.max-records:25000}")
     private int totalBufferCapacity;
 
+    @Value("${app.buffer.max-bytes:67108864}")
+    private long totalBufferBytes;
+
+    @Value("${app.validation.workers:0}")
+    private int configuredWorkers;
+
     @Value("${app.validation.flush-interval-ms:5000}")
     private long FLUSH_INTERVAL_MS;
 
+    // outbox: results through the DB outbox, polls acknowledged after the flush.
+    // transactional: results and offsets in one Kafka transaction per flush
+    @Value("${app.pipeline.mode:outbox}")
+    private String pipelineMode;
+
     private static final String CONSUMER_ID = "tradesListener";
 
-    private boolean isRecovering = false;
+    // Pause fetching above this fill level of a worker budget, resume below RESUME_FILL_RATIO
+    private static final double PAUSE_FILL_RATIO = 0.8;
+    private static final double RESUME_FILL_RATIO = 0.5;
+
+    private static final Acknowledgment NO_ACK = () -> {
+    };
+
+    private volatile boolean isRecovering = false;
+    // Paused because a worker buffer crossed PAUSE_FILL_RATIO
+    private volatile boolean isBackpressured = false;
     private ScheduledFuture<?> recoveryTask;
     private boolean isRunning = false;
 
-    public void checkAndFlush() {
-        if (validationBuffer.size() >= BATCH_SIZE) {
-            batchExecutor.execute(this::flushBatch);
+    private ValidationWorker[] workers;
+
+    private final PollAckSequencer ackSequencer = new PollAckSequencer();
+
+    // Group metadata of the latest poll, transactional flushes commit offsets with it
+    private volatile ConsumerGroupMetadata groupMetadata;
+
+    private Timer bufferWaitTimer;
+    private Counter bufferFullCounter;
+    private Counter bufferDropCounter;
+
+    @PostConstruct
+    void initWorkers() {
+        int workerCount = ValidationWorker.resolveWorkerCount(configuredWorkers);
+        int workerRecords = Math.max(1, totalBufferCapacity / workerCount);
+        long workerBytes = Math.max(1, totalBufferBytes / workerCount);
+
+        workers = new ValidationWorker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            ValidationWorker worker = new ValidationWorker(i, workerRecords, workerBytes);
+            workers[i] = worker;
+
+            Gauge.builder("validation.buffer.records", worker, ValidationWorker::queuedRecords)
+                    .description("Trade records waiting in the worker buffer")
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+            Gauge.builder("validation.buffer.bytes", worker, ValidationWorker::queuedBytes)
+                    .description("Estimated heap bytes waiting in the worker buffer")
+                    .tag("worker", String.valueOf(i))
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            Gauge.builder("validation.buffer.occupancy", worker, ValidationWorker::fillRatio)
+                    .description("Fill level of the tighter of the worker record and byte budgets")
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+
+        bufferWaitTimer = Timer.builder("validation.buffer.wait")
+                .description("Time the listener blocked on a full worker buffer")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        bufferFullCounter = Counter.builder("validation.buffer.full")
+                .description("Polls that found their worker buffer full")
+                .register(meterRegistry);
+        bufferDropCounter = Counter.builder("validation.buffer.drops")
+                .description("Poll parts never buffered (listener interrupted), redelivered after restart")
+                .register(meterRegistry);
+
+        log.info("Validation processing with {} workers, {} records / {} bytes buffered per worker", workerCount,
+                workerRecords, workerBytes);
+    }
+
+    /**
+     * Split a poll by partition across the workers and buffer the parts. The
+     * poll is acknowledged once every part is flushed and all earlier polls are
+     * acknowledged.
+     */
+    public void enqueue(PollBatch poll) {
+        PollBatch[] parts = splitByWorker(poll);
+
+        int partCount = 0;
+        for (PollBatch part : parts) {
+            if (part != null) {
+                partCount++;
+            }
+        }
+
+        // Transactional flushes commit the offsets themselves, nothing to acknowledge
+        boolean transactional = isTransactional();
+        if (transactional) {
+            groupMetadata = poll.getGroupMetadata();
+        }
+
+        PendingPoll pending = transactional ? null : ackSequencer.register(poll.getAck(), Math.max(partCount, 1));
+        if (partCount == 0) {
+            if (pending != null) {
+                ackSequencer.partDone(pending);
+            }
+            return;
+        }
+
+        for (int w = 0; w < parts.length; w++) {
+            PollBatch part = parts[w];
+            if (part == null) {
+                continue;
+            }
+            part.setAck(pending != null ? () -> ackSequencer.partDone(pending) : NO_ACK);
+
+            ValidationWorker worker = workers[w];
+            if (!worker.getBuffer().offer(part)) {
+                // Full: stop fetching and wait for the worker. A dropped part would hold
+                // back every later ack, so the listener blocks instead
+                bufferFullCounter.increment();
+                pauseForBackpressure(worker);
+                scheduleFlush(worker);
+                try {
+                    long waitedNanos = worker.getBuffer().put(part);
+                    bufferWaitTimer.record(waitedNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    bufferDropCounter.increment();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while buffering poll for worker " + w, e);
+                }
+            }
+
+            // Flush as soon as a full batch is waiting; past the pause level also stop
+            // fetching so the listener does not end up blocked on a full buffer
+            double fillRatio = worker.fillRatio();
+            if (fillRatio >= PAUSE_FILL_RATIO) {
+                pauseForBackpressure(worker);
+                scheduleFlush(worker);
+            } else if (worker.getBuffer().records() >= BATCH_SIZE) {
+                scheduleFlush(worker);
+            }
         }
     }
 
-    public synchronized void flushBatch() {
-        if (validationBuffer.isEmpty()) {
+    private void pauseForBackpressure(ValidationWorker worker) {
+        if (isBackpressured) {
             return;
         }
+        isBackpressured = true;
 
-        log.info("Flushing validation batch. Buffer size: {}", validationBuffer.size());
+        MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(CONSUMER_ID);
+        if (container != null && !container.isPauseRequested()) {
+            container.pause();
+            log.warn("Worker {} buffer at {}% ({} records, {} bytes). Kafka Consumer paused.", worker.getId(),
+                    Math.round(worker.fillRatio() * 100), worker.queuedRecords(), worker.queuedBytes());
+        }
+    }
+
+    private PollBatch[] splitByWorker(PollBatch poll) {
+        PollBatch[] parts = new PollBatch[workers.length];
+        List<TradeEventProto> trades = poll.getTradeProtos();
+
+        for (int i = 0; i < trades.size(); i++) {
+            int partition = poll.getPartitions().get(i);
+            int w = Math.floorMod(partition, workers.length);
+
+            PollBatch part = parts[w];
+            if (part == null) {
+                part = new PollBatch(new ArrayList<>(), null, new ArrayList<>(), poll.getTopic(),
+                        new ArrayList<>(), poll.getConsumerGroup(), 0, poll.getGroupMetadata());
+                parts[w] = part;
+            }
+            part.setEstimatedBytes(part.getEstimatedBytes() + PollBatch.estimateBytes(trades.get(i)));
+            part.getTradeProtos().add(trades.get(i));
+            part.getPartitions().add(partition);
+            part.getOffsets().add(poll.getOffsets().get(i));
+        }
+        return parts;
+    }
+
+    private void scheduleFlush(ValidationWorker worker) {
+        if (!worker.tryScheduleFlush()) {
+            return;
+        }
+        try {
+            batchExecutor.execute(() -> {
+                try {
+                    flushBatch(worker);
+                } finally {
+                    worker.flushFinished();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            worker.flushFinished();
+            log.warn("Flush for worker {} rejected, leaving it to the timed flush", worker.getId());
+        }
+    }
+
+    private void flushAll() {
+        for (ValidationWorker worker : workers) {
+            if (!worker.isEmpty()) {
+                scheduleFlush(worker);
+            }
+        }
+    }
+
+    public void flushBatch(ValidationWorker worker) {
+        synchronized (worker) {
+            doFlushBatch(worker);
+        }
+    }
+
+    private void doFlushBatch(ValidationWorker worker) {
+        // Between batches: pick up a hot reloaded rule set if one is ready
+        if (ruleSetManager != null) {
+            ruleSetManager.applyPendingSwap();
+        }
+
+        if (worker.isEmpty()) {
+            return;
+        }
+
+        log.info("Flushing validation batch on worker {}. Buffer size: {}, retries: {}", worker.getId(),
+                worker.getBuffer().size(), worker.getRetries().size());
 
         List<PollBatch> pollsInTheBatch = new ArrayList<>();
         List<TradeEventProto> batchTrades = new ArrayList<>(BATCH_SIZE);
         int currentRecordCount = 0;
 
-        // Collect trades from buffer until batch size is reached
+        // Collect trades, failed polls first, until batch size is reached
         while (currentRecordCount < BATCH_SIZE) {
-            PollBatch nextPoll = validationBuffer.peek();
+            boolean fromRetries = !worker.getRetries().isEmpty();
+            PollBatch nextPoll = fromRetries ? worker.getRetries().peekFirst() : worker.getBuffer().peek();
             if (nextPoll == null) {
                 break;
             }
@@ -95,7 +320,7 @@ public class ValidationBatchProcessor implements SmartLifecycle {
                 break;
             }
 
-            PollBatch poll = validationBuffer.poll();
+            PollBatch poll = fromRetries ? worker.getRetries().pollFirst() : worker.getBuffer().poll();
             pollsInTheBatch.add(poll);
             batchTrades.addAll(poll.getTradeProtos());
             currentRecordCount += poll.getTradeProtos().size();
@@ -122,29 +347,38 @@ public class ValidationBatchProcessor implements SmartLifecycle {
             }
 
             // Process the batch
-            validationBatchProcessingService.processBatch(
-                    batchTrades,
-                    allPartitions,
-                    firstPoll.getTopic(),
-                    allOffsets,
-                    firstPoll.getConsumerGroup());
+            if (isTransactional()) {
+                validationBatchProcessingService.processBatchTransactional(
+                        batchTrades,
+                        allPartitions,
+                        firstPoll.getTopic(),
+                        allOffsets,
+                        groupMetadata);
+            } else {
+                validationBatchProcessingService.processBatch(
+                        batchTrades,
+                        allPartitions,
+                        firstPoll.getTopic(),
+                        allOffsets,
+                        firstPoll.getConsumerGroup());
+            }
 
             // Acknowledge all polls in the batch
             pollsInTheBatch.forEach(poll -> poll.getAck().acknowledge());
 
-            log.info("Successfully processed and acknowledged {} trade events", batchTrades.size());
+            log.info("Worker {} successfully processed {} trade events", worker.getId(), batchTrades.size());
 
-            // If recovering and buffer is below 50%, resume consumer
-            if (isRecovering && validationBuffer.size() <= 0.5 * totalBufferCapacity) {
+            // If paused and every worker's buffer is below 50%, resume consumer
+            if ((isRecovering || isBackpressured) && allBuffersBelow(RESUME_FILL_RATIO)) {
                 resumeConsumer();
             }
 
         } catch (DataAccessResourceFailureException e) {
             log.error("DB Connection failure. Pausing consumer and returning batches to buffer.");
 
-            // Return batches to front of buffer in reverse order
+            // Return batches to front of the retries in reverse order
             for (int i = pollsInTheBatch.size() - 1; i >= 0; i--) {
-                validationBuffer.offerFirst(pollsInTheBatch.get(i));
+                worker.getRetries().offerFirst(pollsInTheBatch.get(i));
             }
 
             handleConsumerThread(true);
@@ -153,19 +387,90 @@ public class ValidationBatchProcessor implements SmartLifecycle {
         } catch (Exception e) {
             log.error("Exception occurred during batch processing: {}", e.getMessage(), e);
 
-            // Return batches to front of buffer in reverse order
+            // Return batches to front of the retries in reverse order
             for (int i = pollsInTheBatch.size() - 1; i >= 0; i--) {
-                validationBuffer.offerFirst(pollsInTheBatch.get(i));
+                worker.getRetries().offerFirst(pollsInTheBatch.get(i));
             }
 
             throw e;
         }
     }
 
+    /**
+     * Drop the buffered trades of partitions this consumer is losing
+     * (app.pipeline.mode=transactional, called on the consumer thread before
+     * the rebalance completes). Their offsets were never committed, so the new
+     * owner reads them again. Waits for a running flush of each worker, which
+     * still commits with the current generation.
+     */
+    public void discardRevoked(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Set<Integer> revoked = new HashSet<>();
+        for (TopicPartition partition : partitions) {
+            revoked.add(partition.partition());
+        }
+
+        int dropped = 0;
+        for (ValidationWorker worker : workers) {
+            synchronized (worker) {
+                // Oldest first: the retries, then the buffer. What is kept goes back as retries,
+                // which are flushed before anything buffered later
+                List<PollBatch> kept = new ArrayList<>();
+                PollBatch poll;
+                while ((poll = worker.getRetries().pollFirst()) != null) {
+                    dropped += keepOwned(poll, revoked, kept);
+                }
+                while ((poll = worker.getBuffer().poll()) != null) {
+                    dropped += keepOwned(poll, revoked, kept);
+                }
+                kept.forEach(worker.getRetries()::offerLast);
+            }
+        }
+        log.warn("Partitions {} revoked, dropped {} buffered trades for the new owner to read again", partitions,
+                dropped);
+    }
+
+    /**
+     * Adds the poll's trades of partitions still owned to kept, returns how many were dropped.
+     */
+    private static int keepOwned(PollBatch poll, Set<Integer> revoked, List<PollBatch> kept) {
+        PollBatch owned = new PollBatch(new ArrayList<>(), poll.getAck(), new ArrayList<>(), poll.getTopic(),
+                new ArrayList<>(), poll.getConsumerGroup(), 0, poll.getGroupMetadata());
+        for (int i = 0; i < poll.getTradeProtos().size(); i++) {
+            if (revoked.contains(poll.getPartitions().get(i))) {
+                continue;
+            }
+            TradeEventProto trade = poll.getTradeProtos().get(i);
+            owned.setEstimatedBytes(owned.getEstimatedBytes() + PollBatch.estimateBytes(trade));
+            owned.getTradeProtos().add(trade);
+            owned.getPartitions().add(poll.getPartitions().get(i));
+            owned.getOffsets().add(poll.getOffsets().get(i));
+        }
+        if (!owned.getTradeProtos().isEmpty()) {
+            kept.add(owned);
+        }
+        return poll.getTradeProtos().size() - owned.getTradeProtos().size();
+    }
+
+    private boolean isTransactional() {
+        return "transactional".equalsIgnoreCase(pipelineMode);
+    }
+
+    private boolean allBuffersBelow(double fraction) {
+        for (ValidationWorker worker : workers) {
+            if (worker.fillRatio() > fraction) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void start() {
         log.info("ValidationBatchProcessor starting: Initializing time-based flush");
-        batchFlushScheduler.scheduleWithFixedDelay(this::flushBatch, Duration.ofMillis(FLUSH_INTERVAL_MS));
+        batchFlushScheduler.scheduleWithFixedDelay(this::flushAll, Duration.ofMillis(FLUSH_INTERVAL_MS));
         this.isRunning = true;
     }
 
@@ -174,8 +479,12 @@ public class ValidationBatchProcessor implements SmartLifecycle {
         log.info("ValidationBatchProcessor stopping: Performing final flush");
         batchFlushScheduler.shutdown();
 
-        if (!validationBuffer.isEmpty()) {
-            flushBatch();
+        for (ValidationWorker worker : workers) {
+            try {
+                flushBatch(worker);
+            } catch (Exception e) {
+                log.error("Final flush failed on worker {}: {}", worker.getId(), e.getMessage());
+            }
         }
 
         this.isRunning = false;
@@ -204,14 +513,16 @@ public class ValidationBatchProcessor implements SmartLifecycle {
 
     private void resumeConsumer() {
         MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(CONSUMER_ID);
-        if (container != null && container.isContainerPaused()) {
+        // Pause requested is enough, the listener may still be blocked on a full buffer
+        if (container != null && container.isPauseRequested()) {
             container.resume();
-            log.info("Buffer cleared to 50% ({} batches). Resuming consumer.", validationBuffer.size());
+            log.info("Worker buffers cleared to 50%. Resuming consumer.");
 
             synchronized (this) {
                 isRecovering = false;
             }
         }
+        isBackpressured = false;
     }
 
     private void startDaemon() {
@@ -1,5 +1,7 @@
 package com.pms.validation.service.processing;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -15,6 +17,8 @@ import com.pms.validation.entity.ValidationOutboxEntity;
 import com.pms.validation.repository.InvalidTradeRepository;
 import com.pms.validation.repository.ValidationOutboxRepository;
 import com.pms.validation.service.domain.TradeValidationService;
+import com.pms.validation.service.outbox.OutboxPayloadSerializer;
+import com.pms.validation.service.reference.ReferenceData;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,6 +35,9 @@ public class ValidationCore {
     @Autowired
     private InvalidTradeRepository invalidTradeRepo;
 
+    @Autowired
+    private OutboxPayloadSerializer payloadSerializer;
+
     @Value("${app.incoming-trades-topic}")
     private String incomingTradesTopic;
 
@@ -39,10 +46,27 @@ public class ValidationCore {
      * persisting.
      * The caller is responsible for persisting the returned entities (batch saveAll
      * recommended).
+     * The reference data is resolved once per batch by the caller.
      */
-    public ValidationDecision evaluate(TradeDto trade) {
-        ValidationResultDto result = tradeValidationService.validateTrade(trade);
+    public ValidationDecision evaluate(TradeDto trade, ReferenceData referenceData) {
+        return toDecision(trade, tradeValidationService.validateTrade(trade, referenceData));
+    }
+
+    /**
+     * Evaluate a whole batch in a single rules session. Decisions are returned in
+     * the same order as the trades.
+     */
+    public List<ValidationDecision> evaluateBatch(List<TradeDto> trades, ReferenceData referenceData) {
+        List<ValidationResultDto> results = tradeValidationService.validateBatch(trades, referenceData);
+
+        List<ValidationDecision> decisions = new ArrayList<>(trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            decisions.add(toDecision(trades.get(i), results.get(i)));
+        }
+        return decisions;
+    }
 
+    private ValidationDecision toDecision(TradeDto trade, ValidationResultDto result) {
         String status = result.isValid() ? "VALID" : "INVALID";
         String errors = result.getErrors().isEmpty() ? null
                 : result.getErrors().stream().collect(Collectors.joining("; "));
@@ -62,7 +86,9 @@ public class ValidationCore {
                     .sentStatus("PENDING") // Outbox message Status
                     .validationStatus(status)
                     .validationErrors(null)
+                    .ruleVersion(result.getRuleVersion())
                     .build();
+            outbox.setPayload(serializePayload(outbox));
 
             log.debug("Validation decision: VALID for trade {}", trade.getTradeId());
             return new ValidationDecision(outbox, null);
@@ -82,10 +108,35 @@ public class ValidationCore {
                     .sentStatus("PENDING")
                     .validationStatus(status)
                     .validationErrors(errors)
+                    .ruleVersion(result.getRuleVersion())
                     .build();
+            invalidTrade.setPayload(serializePayload(invalidTrade));
 
             log.debug("Validation decision: INVALID for trade {}", trade.getTradeId());
             return new ValidationDecision(null, invalidTrade);
         }
     }
+
+    /**
+     * The record value the dispatcher will send, null leaves it to the
+     * dispatcher (a row that cannot be serialized is dead lettered there).
+     */
+    private byte[] serializePayload(ValidationOutboxEntity outbox) {
+        try {
+            return payloadSerializer.serialize(outbox);
+        } catch (Exception ex) {
+            log.warn("Failed to serialize outbox payload for trade {}: {}", outbox.getTradeId(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] serializePayload(InvalidTradeEntity invalidTrade) {
+        try {
+            return payloadSerializer.serialize(invalidTrade);
+        } catch (Exception ex) {
+            log.warn("Failed to serialize invalid trade payload for trade {}: {}", invalidTrade.getTradeId(),
+                    ex.getMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.pms.validation.service.processing;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pms.validation.wrapper.PollBatch;
+
+/**
+ * One shard of the intake buffer. Every Kafka partition maps to exactly one
+ * worker (partition % workers), and a worker flushes one batch at a time in
+ * arrival order, so per-partition ordering holds while workers run in parallel
+ * with their own flush, transaction and ack.
+ */
+public class ValidationWorker {
+
+    private final int id;
+
+    private final PollRingBuffer buffer;
+
+    // Polls of a failed flush, retried before the buffer. Kept apart so a buffer
+    // refilled by the listener meanwhile can never reject them
+    private final Deque<PollBatch> retries = new ConcurrentLinkedDeque<>();
+
+    // Set while a flush for this worker is queued or running on the executor
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public ValidationWorker(int id, int maxRecords, long maxBytes) {
+        this.id = id;
+        this.buffer = new PollRingBuffer(maxRecords, maxBytes);
+    }
+
+    /**
+     * Worker count for app.validation.workers: 0 or less means one per core, and
+     * more workers than cores is capped since flushes are CPU bound.
+     */
+    public static int resolveWorkerCount(int configured) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return configured <= 0 ? cores : Math.min(configured, cores);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public PollRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    public Deque<PollBatch> getRetries() {
+        return retries;
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty() && retries.isEmpty();
+    }
+
+    /**
+     * Records waiting in the buffer and the retries.
+     */
+    public long queuedRecords() {
+        long queued = buffer.records();
+        for (PollBatch poll : retries) {
+            queued += poll.getTradeProtos().size();
+        }
+        return queued;
+    }
+
+    /**
+     * Estimated heap bytes waiting in the buffer and the retries.
+     */
+    public long queuedBytes() {
+        long queued = buffer.bytes();
+        for (PollBatch poll : retries) {
+            queued += poll.getEstimatedBytes();
+        }
+        return queued;
+    }
+
+    /**
+     * Fill level against whichever budget is closer to its limit.
+     */
+    public double fillRatio() {
+        return Math.max((double) queuedRecords() / buffer.maxRecords(),
+                (double) queuedBytes() / buffer.maxBytes());
+    }
+
+    public boolean tryScheduleFlush() {
+        return flushScheduled.compareAndSet(false, true);
+    }
+
+    public void flushFinished() {
+        flushScheduled.set(false);
+    }
+}
@@ -0,0 +1,30 @@
+package com.pms.validation.service.reference;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable view of the reference data the validation rules check trades
+ * against. Both sets are hash based so membership checks are O(1).
+ */
+public record ReferenceData(Set<UUID> portfolioIds, Set<String> symbols) {
+
+    public static final ReferenceData EMPTY = new ReferenceData(Collections.emptySet(), Collections.emptySet());
+
+    public static ReferenceData of(Collection<UUID> portfolioIds, Collection<String> symbols) {
+        return new ReferenceData(
+                Collections.unmodifiableSet(new HashSet<>(portfolioIds)),
+                Collections.unmodifiableSet(new HashSet<>(symbols)));
+    }
+
+    public boolean hasPortfolio(UUID portfolioId) {
+        return portfolioId != null && portfolioIds.contains(portfolioId);
+    }
+
+    public boolean hasSymbol(String symbol) {
+        return symbol != null && symbols.contains(symbol);
+    }
+}
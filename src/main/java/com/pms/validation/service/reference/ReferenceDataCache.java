@@ -0,0 +1,150 @@
+package com.pms.validation.service.reference;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.repository.InvestorDetailsRepository;
+import com.pms.validation.repository.StockRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds an in-memory snapshot of valid portfolio ids and stock symbols so rule
+ * evaluation never goes to the database on the hot path.
+ *
+ * The snapshot is refreshed in the background: incrementally from the
+ * updated_at change markers, and periodically in full so deleted rows drop out.
+ * Every refresh builds a new {@link ReferenceData} and swaps it in atomically,
+ * readers never see a half-applied update.
+ *
+ * Not created when app.reference-data.mode=batch, see
+ * {@link ReferenceDataResolver}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.reference-data.mode", havingValue = "snapshot", matchIfMissing = true)
+@Slf4j
+public class ReferenceDataCache {
+
+    // Re-read a small window before the watermark so rows committed late with an
+    // older updated_at are not missed. Re-adding an id to a set is harmless.
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(1);
+
+    private final InvestorDetailsRepository investorDetailsRepository;
+
+    private final StockRepository stockRepository;
+
+    private final AtomicReference<ReferenceData> snapshot = new AtomicReference<>();
+
+    @Value("${app.reference-data.full-refresh-interval-ms:600000}")
+    private long fullRefreshIntervalMs;
+
+    // Only touched while holding the monitor in refresh()
+    private LocalDateTime portfolioWatermark;
+    private LocalDateTime stockWatermark;
+    private long lastFullRefreshAt;
+
+    public ReferenceDataCache(InvestorDetailsRepository investorDetailsRepository,
+            StockRepository stockRepository) {
+        this.investorDetailsRepository = investorDetailsRepository;
+        this.stockRepository = stockRepository;
+    }
+
+    /**
+     * Current snapshot. Loads it synchronously only if no snapshot exists yet.
+     */
+    public ReferenceData current() {
+        ReferenceData data = snapshot.get();
+        if (data == null) {
+            refresh();
+            data = snapshot.get();
+        }
+        return data;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reference-data.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception ex) {
+            // Keep serving the previous snapshot, the next run will retry
+            log.warn("Reference data refresh failed, keeping previous snapshot: {}", ex.getMessage());
+        }
+    }
+
+    public synchronized void refresh() {
+        boolean fullRefreshDue = System.currentTimeMillis() - lastFullRefreshAt >= fullRefreshIntervalMs;
+
+        if (snapshot.get() == null || fullRefreshDue || portfolioWatermark == null || stockWatermark == null) {
+            fullReload();
+        } else {
+            incrementalRefresh();
+        }
+    }
+
+    private void fullReload() {
+        long start = System.currentTimeMillis();
+
+        // Read the watermarks first so anything changed while loading is picked up
+        // by the next incremental refresh
+        LocalDateTime latestPortfolioUpdate = investorDetailsRepository.findLatestUpdatedAt();
+        LocalDateTime latestStockUpdate = stockRepository.findLatestUpdatedAt();
+
+        List<UUID> portfolioIds = investorDetailsRepository.findAllPortfolioIds();
+        List<String> symbols = stockRepository.findAllSymbols();
+
+        snapshot.set(ReferenceData.of(portfolioIds, symbols));
+
+        // An empty table leaves its watermark unset, which keeps the next refresh a
+        // full (and cheap) reload until rows show up
+        portfolioWatermark = latestPortfolioUpdate;
+        stockWatermark = latestStockUpdate;
+        lastFullRefreshAt = System.currentTimeMillis();
+
+        log.info("Reference data reloaded: {} portfolios, {} symbols in {} ms",
+                portfolioIds.size(), symbols.size(), lastFullRefreshAt - start);
+    }
+
+    private void incrementalRefresh() {
+        LocalDateTime latestPortfolioUpdate = investorDetailsRepository.findLatestUpdatedAt();
+        LocalDateTime latestStockUpdate = stockRepository.findLatestUpdatedAt();
+
+        // Both are indexed range scans over the last few minutes of changes
+        List<UUID> changedPortfolios = investorDetailsRepository
+                .findPortfolioIdsUpdatedSince(portfolioWatermark.minus(WATERMARK_OVERLAP));
+        List<String> changedSymbols = stockRepository
+                .findSymbolsUpdatedSince(stockWatermark.minus(WATERMARK_OVERLAP));
+
+        if (latestPortfolioUpdate != null && latestPortfolioUpdate.isAfter(portfolioWatermark)) {
+            portfolioWatermark = latestPortfolioUpdate;
+        }
+        if (latestStockUpdate != null && latestStockUpdate.isAfter(stockWatermark)) {
+            stockWatermark = latestStockUpdate;
+        }
+
+        ReferenceData previous = snapshot.get();
+        if (previous.portfolioIds().containsAll(changedPortfolios) && previous.symbols().containsAll(changedSymbols)) {
+            return;
+        }
+
+        Set<UUID> portfolioIds = new HashSet<>(previous.portfolioIds());
+        portfolioIds.addAll(changedPortfolios);
+
+        Set<String> symbols = new HashSet<>(previous.symbols());
+        symbols.addAll(changedSymbols);
+
+        snapshot.set(ReferenceData.of(portfolioIds, symbols));
+
+        log.debug("Reference data refreshed incrementally: {} changed portfolios, {} changed symbols",
+                changedPortfolios.size(), changedSymbols.size());
+    }
+}
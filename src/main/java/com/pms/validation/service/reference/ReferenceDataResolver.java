@@ -0,0 +1,89 @@
+package com.pms.validation.service.reference;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.repository.InvestorDetailsRepository;
+import com.pms.validation.repository.StockRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the reference data used to validate a batch of trades.
+ *
+ * snapshot (default) - the in-memory {@link ReferenceDataCache}.
+ * batch - no global cache; the distinct portfolio ids and symbols of the
+ * batch are looked up with one indexed query each, for deployments where the
+ * reference tables are too large or change too often to cache whole.
+ */
+@Component
+@Slf4j
+public class ReferenceDataResolver {
+
+    private final ObjectProvider<ReferenceDataCache> referenceDataCache;
+
+    private final InvestorDetailsRepository investorDetailsRepository;
+
+    private final StockRepository stockRepository;
+
+    @Value("${app.reference-data.mode:snapshot}")
+    private String mode;
+
+    public ReferenceDataResolver(ObjectProvider<ReferenceDataCache> referenceDataCache,
+            InvestorDetailsRepository investorDetailsRepository, StockRepository stockRepository) {
+        this.referenceDataCache = referenceDataCache;
+        this.investorDetailsRepository = investorDetailsRepository;
+        this.stockRepository = stockRepository;
+    }
+
+    /**
+     * Fails startup on an unknown mode, which would otherwise only surface as a
+     * missing ReferenceDataCache bean on the first flush.
+     */
+    @PostConstruct
+    void checkMode() {
+        if (!"snapshot".equalsIgnoreCase(mode) && !"batch".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException(
+                    "Unknown app.reference-data.mode: " + mode + " (expected snapshot or batch)");
+        }
+    }
+
+    public ReferenceData resolve(Collection<TradeDto> trades) {
+        if (!"batch".equalsIgnoreCase(mode)) {
+            return referenceDataCache.getObject().current();
+        }
+
+        Set<UUID> portfolioIds = new HashSet<>();
+        Set<String> symbols = new HashSet<>();
+        for (TradeDto trade : trades) {
+            if (trade.getPortfolioId() != null) {
+                portfolioIds.add(trade.getPortfolioId());
+            }
+            if (trade.getSymbol() != null) {
+                symbols.add(trade.getSymbol());
+            }
+        }
+
+        if (portfolioIds.isEmpty() && symbols.isEmpty()) {
+            return ReferenceData.EMPTY;
+        }
+
+        ReferenceData resolved = ReferenceData.of(
+                portfolioIds.isEmpty() ? List.<UUID>of() : investorDetailsRepository.findExistingPortfolioIds(portfolioIds),
+                symbols.isEmpty() ? List.<String>of() : stockRepository.findExistingSymbols(symbols));
+
+        log.debug("Resolved batch reference data: {}/{} portfolios, {}/{} symbols",
+                resolved.portfolioIds().size(), portfolioIds.size(), resolved.symbols().size(), symbols.size());
+
+        return resolved;
+    }
+}
@@ -0,0 +1,237 @@
+package com.pms.validation.service.retention;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the daily created_at partitions of validation_outbox and
+ * validation_invalid_trades (see V11): creates the partitions for the coming
+ * days and retires the ones past the retention window.
+ *
+ * A partition is retired only when it has no PENDING or IN_FLIGHT rows left
+ * (FAILED rows have their payload in validation_dlq_entry). It is detached,
+ * then dropped or, in archive mode, kept as a standalone <partition>_archive
+ * table. Tables that are not partitioned yet are skipped.
+ *
+ * The first run happens at startup, before the listener and the dispatchers
+ * start. Rows of a day that already went to the default partition are moved
+ * into the day's partition when it is created, since PostgreSQL refuses to
+ * create a partition whose rows sit in the default one.
+ */
+@Component
+@Slf4j
+public class OutboxPartitionMaintainer implements SmartLifecycle {
+
+    private static final List<String> TABLES = List.of("validation_outbox", "validation_invalid_trades");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // pg_get_expr of a range bound: FOR VALUES FROM (...) TO ('2026-01-02 00:00:00')
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.partitions.premake-days:7}")
+    private int premakeDays;
+
+    @Value("${app.outbox.partitions.retention:30d}")
+    private Duration retention;
+
+    // drop, or archive: detach and keep as <partition>_archive
+    @Value("${app.outbox.partitions.retention-mode:drop}")
+    private String retentionMode;
+
+    private volatile boolean running = false;
+
+    public OutboxPartitionMaintainer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void start() {
+        maintain();
+        running = true;
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.partitions.maintenance-interval-ms:3600000}",
+            fixedDelayString = "${app.outbox.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        for (String table : TABLES) {
+            List<Map<String, Object>> partitions;
+            try {
+                if (!isPartitioned(table)) {
+                    log.debug("{} is not partitioned, skipping partition maintenance", table);
+                    continue;
+                }
+                partitions = partitions(table);
+            } catch (DataAccessException e) {
+                log.error("Partition maintenance of {} failed", table, e);
+                continue;
+            }
+            // Independent passes, a day that cannot be created does not hold back retirement
+            createUpcomingPartitions(table, partitions);
+            try {
+                retireExpiredPartitions(table, partitions);
+            } catch (DataAccessException e) {
+                log.error("Retiring expired partitions of {} failed", table, e);
+            }
+        }
+    }
+
+    private boolean isPartitioned(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_class WHERE relname = ? AND relkind = 'p')", Boolean.class, table));
+    }
+
+    private List<Map<String, Object>> partitions(String table) {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = CAST(? AS regclass)
+                """, table);
+    }
+
+    private void createUpcomingPartitions(String table, List<Map<String, Object>> partitions) {
+        // Continue after the highest bound, the partition holding the rows from before
+        // partitioning (V11) ends at its cutover
+        LocalDate day = LocalDate.now();
+        for (Map<String, Object> partition : partitions) {
+            LocalDateTime upper = upperBound((String) partition.get("bound"));
+            if (upper != null && upper.toLocalDate().isAfter(day)) {
+                day = upper.toLocalDate();
+            }
+        }
+
+        String defaultPartition = defaultPartition(partitions);
+
+        LocalDate last = LocalDate.now().plusDays(premakeDays);
+        for (; !day.isAfter(last); day = day.plusDays(1)) {
+            String name = table + "_p" + day.format(SUFFIX);
+            try {
+                if (defaultPartition != null && hasRowsOf(defaultPartition, day)) {
+                    createFromDefault(table, defaultPartition, name, day);
+                } else {
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table
+                            + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+                    log.info("Created partition {}", name);
+                }
+            } catch (DataAccessException e) {
+                // The next day can still be created, this one is tried again next run
+                log.error("Creating partition {} failed", name, e);
+            }
+        }
+    }
+
+    private static String defaultPartition(List<Map<String, Object>> partitions) {
+        for (Map<String, Object> partition : partitions) {
+            if ("DEFAULT".equals(partition.get("bound"))) {
+                return (String) partition.get("name");
+            }
+        }
+        return null;
+    }
+
+    private boolean hasRowsOf(String partition, LocalDate day) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition
+                + " WHERE created_at >= ? AND created_at < ?)", Boolean.class,
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Create the day's partition and move its rows out of the default one, in
+     * one transaction: the default partition is detached meanwhile, its rows are
+     * re-inserted through the parent and it is attached again.
+     */
+    private void createFromDefault(String table, String defaultPartition, String name, LocalDate day) {
+        String range = "created_at >= '" + day + "' AND created_at < '" + day.plusDays(1) + "'";
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + defaultPartition);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + table
+                    + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+            int moved = jdbcTemplate.update("INSERT INTO " + table + " SELECT * FROM " + defaultPartition
+                    + " WHERE " + range);
+            jdbcTemplate.update("DELETE FROM " + defaultPartition + " WHERE " + range);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + defaultPartition + " DEFAULT");
+            log.info("Created partition {} and moved {} rows into it from {}", name, moved, defaultPartition);
+        });
+    }
+
+    private void retireExpiredPartitions(String table, List<Map<String, Object>> partitions) {
+        LocalDateTime horizon = LocalDate.now().atStartOfDay().minus(retention);
+
+        for (Map<String, Object> partition : partitions) {
+            String name = (String) partition.get("name");
+            LocalDateTime upper = upperBound((String) partition.get("bound"));
+            if (upper == null || upper.isAfter(horizon)) {
+                continue;
+            }
+
+            Boolean unsettled = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + name
+                    + " WHERE sent_status IN ('PENDING', 'IN_FLIGHT'))", Boolean.class);
+            if (Boolean.TRUE.equals(unsettled)) {
+                log.warn("Partition {} is past retention but still has unsent rows, keeping it", name);
+                continue;
+            }
+
+            // DETACH locks the parent, give up quickly rather than queue the dispatchers behind it
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + name);
+            });
+
+            if ("archive".equalsIgnoreCase(retentionMode)) {
+                jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + name + "_archive");
+                log.info("Detached partition {} and kept it as {}_archive", name, name);
+            } else {
+                jdbcTemplate.execute("DROP TABLE " + name);
+                log.info("Dropped partition {}", name);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before every other lifecycle bean, the listener container and the dispatchers included
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    private static LocalDateTime upperBound(String bound) {
+        if (bound == null) {
+            return null;
+        }
+        Matcher matcher = UPPER_BOUND.matcher(bound);
+        return matcher.find() ? LocalDateTime.parse(matcher.group(1), BOUND_FORMAT) : null;
+    }
+}
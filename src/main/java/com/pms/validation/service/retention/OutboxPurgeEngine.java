@@ -0,0 +1,240 @@
+package com.pms.validation.service.retention;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pms.validation.service.outbox.DispatchLatencyTracker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Online purge of settled rows: SENT outbox and invalid trade rows, and DLQ
+ * entries, older than their configured age. Rows are deleted (or moved to
+ * the matching _archive table) in small keyset chunks, each chunk its own
+ * short transaction, so the dispatchers never wait on a long delete.
+ *
+ * Throttling: before every chunk the purge checks the replica replay lag and
+ * the dispatchers' claim/confirm latency, and backs off while either is above
+ * its limit, giving up the run after a while.
+ *
+ * A run purges at most max-chunks-per-run chunks of each table and leaves
+ * the rest of a backlog to the next runs, so it never holds a scheduler
+ * thread for long. Progress is checkpointed per table in
+ * validation_purge_checkpoint, the next run (or a restarted pod) resumes
+ * where the last chunk ended. A new pass from the
+ * lowest id starts every rescan-interval to pick up rows that were not yet
+ * settled when the previous pass went by.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.purge.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxPurgeEngine {
+
+    private static final int MAX_THROTTLE_WAITS = 30;
+    private static final long THROTTLE_BACKOFF_MS = 2000;
+
+    // settled: SQL predicate of the rows that may go once older than age
+    private record PurgeTarget(String table, String idColumn, String settled, Duration age) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DispatchLatencyTracker latencyTracker;
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<PurgeTarget> targets;
+
+    // delete, or archive: move the rows to <table>_archive
+    @Value("${app.outbox.purge.mode:delete}")
+    private String mode;
+
+    @Value("${app.outbox.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.outbox.purge.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    @Value("${app.outbox.purge.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${app.outbox.purge.max-replication-lag:10s}")
+    private Duration maxReplicationLag;
+
+    @Value("${app.outbox.purge.max-dispatch-latency-ms:250}")
+    private long maxDispatchLatencyMs;
+
+    @Value("${app.outbox.purge.rescan-interval:24h}")
+    private Duration rescanInterval;
+
+    public OutboxPurgeEngine(JdbcTemplate jdbcTemplate, DispatchLatencyTracker latencyTracker,
+            MeterRegistry meterRegistry,
+            @Value("${app.outbox.purge.age:7d}") Duration age,
+            @Value("${app.outbox.purge.dlq-age:30d}") Duration dlqAge) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.latencyTracker = latencyTracker;
+        this.meterRegistry = meterRegistry;
+        this.targets = List.of(
+                new PurgeTarget("validation_outbox", "validation_outbox_id", "sent_status = 'SENT'", age),
+                new PurgeTarget("validation_invalid_trades", "invalid_trade_outbox_id", "sent_status = 'SENT'", age),
+                new PurgeTarget("validation_dlq_entry", "dlq_entry_id", "TRUE", dlqAge));
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.purge.interval-ms:300000}",
+            fixedDelayString = "${app.outbox.purge.interval-ms:300000}")
+    public void purge() {
+        for (PurgeTarget target : targets) {
+            try {
+                if (!purge(target)) {
+                    // Throttled out, the other tables wait for the next run as well
+                    return;
+                }
+            } catch (DataAccessException e) {
+                log.error("Purge of {} failed, resuming from the checkpoint next run", target.table(), e);
+            }
+        }
+    }
+
+    /**
+     * Purge one table up to the first chunk newer than the age or
+     * max-chunks-per-run chunks, returns false when the run was cut short by
+     * throttling.
+     */
+    private boolean purge(PurgeTarget target) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(target.age());
+
+        long lastId = startPass(target.table(), now);
+        long total = 0;
+        int chunks = 0;
+
+        while (true) {
+            if (!awaitHeadroom()) {
+                log.info("Purge of {} yielding after {} rows, database under load", target.table(), total);
+                return false;
+            }
+
+            // Next keyset window of ids, then delete its settled rows past the age
+            List<Map<String, Object>> window = jdbcTemplate.queryForList(
+                    "SELECT max(" + target.idColumn() + ") AS last_id, max(created_at) AS newest FROM ("
+                            + "SELECT " + target.idColumn() + ", created_at FROM " + target.table()
+                            + " WHERE " + target.idColumn() + " > ? ORDER BY " + target.idColumn()
+                            + " LIMIT ?) w",
+                    lastId, chunkSize);
+            Number windowEnd = (Number) window.get(0).get("last_id");
+            if (windowEnd == null) {
+                break;
+            }
+
+            int purged = jdbcTemplate.update(purgeSql(target), lastId, windowEnd.longValue(), cutoff);
+            total += purged;
+            meterRegistry.counter("outbox.purge.rows", "table", target.table()).increment(purged);
+
+            // Ids roughly follow created_at: once a window reaches rows younger than the
+            // age the rest of the table is too, the window is visited again next run
+            Object newest = window.get(0).get("newest");
+            if (newest != null && toLocalDateTime(newest).isAfter(cutoff)) {
+                break;
+            }
+
+            lastId = windowEnd.longValue();
+            checkpoint(target.table(), lastId);
+            if (++chunks >= maxChunksPerRun) {
+                log.info("Purge of {} stopping at id {} after {} chunks, resuming there next run", target.table(),
+                        lastId, chunks);
+                break;
+            }
+            sleep(pauseMs);
+        }
+
+        if (total > 0) {
+            log.info("Purged {} rows from {} older than {} ({})", total, target.table(), cutoff, mode);
+        }
+        return true;
+    }
+
+    private String purgeSql(PurgeTarget target) {
+        String where = " WHERE " + target.idColumn() + " > ? AND " + target.idColumn() + " <= ? AND "
+                + target.settled() + " AND created_at < ?";
+        if ("archive".equalsIgnoreCase(mode)) {
+            return "WITH moved AS (DELETE FROM " + target.table() + where + " RETURNING *) "
+                    + "INSERT INTO " + target.table() + "_archive SELECT * FROM moved";
+        }
+        return "DELETE FROM " + target.table() + where;
+    }
+
+    /**
+     * Checkpointed id to resume from, or 0 when a new pass is due.
+     */
+    private long startPass(String table, LocalDateTime now) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT last_id, pass_started_at FROM validation_purge_checkpoint WHERE table_name = ?", table);
+        if (!rows.isEmpty()) {
+            LocalDateTime passStartedAt = toLocalDateTime(rows.get(0).get("pass_started_at"));
+            if (passStartedAt.plus(rescanInterval).isAfter(now)) {
+                return ((Number) rows.get(0).get("last_id")).longValue();
+            }
+        }
+        jdbcTemplate.update("""
+                INSERT INTO validation_purge_checkpoint (table_name, last_id, pass_started_at, updated_at)
+                VALUES (?, 0, now(), now())
+                ON CONFLICT (table_name) DO UPDATE SET last_id = 0, pass_started_at = now(), updated_at = now()
+                """, table);
+        return 0;
+    }
+
+    private void checkpoint(String table, long lastId) {
+        jdbcTemplate.update(
+                "UPDATE validation_purge_checkpoint SET last_id = ?, updated_at = now() WHERE table_name = ?",
+                lastId, table);
+    }
+
+    private boolean awaitHeadroom() {
+        for (int i = 0; i < MAX_THROTTLE_WAITS; i++) {
+            Duration lag = replicationLag();
+            double latencyMs = latencyTracker.averageMs();
+            if (lag.compareTo(maxReplicationLag) <= 0 && latencyMs <= maxDispatchLatencyMs) {
+                return true;
+            }
+            log.debug("Purge throttled | replicationLag={} dispatchLatencyMs={}", lag, latencyMs);
+            meterRegistry.counter("outbox.purge.throttled").increment();
+            sleep(THROTTLE_BACKOFF_MS);
+        }
+        return false;
+    }
+
+    private Duration replicationLag() {
+        try {
+            Double seconds = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(EXTRACT(EPOCH FROM max(replay_lag)), 0) FROM pg_stat_replication",
+                    Double.class);
+            return seconds != null ? Duration.ofMillis((long) (seconds * 1000)) : Duration.ZERO;
+        } catch (DataAccessException e) {
+            // No replicas visible to this role
+            return Duration.ZERO;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp ts ? ts.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
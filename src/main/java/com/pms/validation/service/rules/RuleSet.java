@@ -0,0 +1,24 @@
+package com.pms.validation.service.rules;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.ObjectPool;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * One compiled version of the validation rules with its own session pool.
+ * The version is derived from the DRL content, so every pod running the same
+ * rules stamps the same version on its outbox rows.
+ *
+ * Readers counts the batches between {@link RuleSetManager#acquire()} and
+ * {@link RuleSetManager#release(RuleSet)}; a retired rule set is only closed
+ * once it drops to zero.
+ */
+public record RuleSet(String version, KieContainer kieContainer, ObjectPool<KieSession> sessionPool,
+        AtomicInteger readers) {
+
+    public RuleSet(String version, KieContainer kieContainer, ObjectPool<KieSession> sessionPool) {
+        this(version, kieContainer, sessionPool, new AtomicInteger());
+    }
+}
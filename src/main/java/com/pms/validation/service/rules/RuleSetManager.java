@@ -0,0 +1,231 @@
+package com.pms.validation.service.rules;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.kie.api.KieServices;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import com.pms.validation.config.DroolsConfig;
+import com.pms.validation.service.metrics.RuleMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Owns the live Drools rule set and hot reloads it.
+ *
+ * When app.rules.location points at a directory, its .drl files are polled in
+ * the background. A changed set is compiled off the hot path and parked as
+ * pending; {@link #applyPendingSwap()} makes it live between batches. Batches
+ * hold their rule set from {@link #acquire()} to {@link #release(RuleSet)}, the
+ * previous version's pool is closed and its KieContainer disposed once the
+ * last batch still on it released it. A compile failure leaves the current
+ * version live.
+ */
+@Slf4j
+public class RuleSetManager {
+
+    private final String rulesLocation;
+
+    private final RuleMetrics ruleMetrics;
+
+    private final AtomicReference<RuleSet> active = new AtomicReference<>();
+
+    private final AtomicReference<RuleSet> pending = new AtomicReference<>();
+
+    // Swapped out rule sets whose sessions may still be borrowed
+    private final List<RuleSet> draining = new CopyOnWriteArrayList<>();
+
+    // Version of the newest rule set compiled (live or pending) and the last one
+    // that failed, so an unchanged directory is not recompiled every poll
+    private volatile String latestVersion;
+    private volatile String failedVersion;
+
+    public RuleSetManager(String rulesLocation) {
+        this(rulesLocation, RuleMetrics.disabled());
+    }
+
+    public RuleSetManager(String rulesLocation, RuleMetrics ruleMetrics) {
+        this.rulesLocation = rulesLocation;
+        this.ruleMetrics = ruleMetrics;
+
+        RuleSet initial = null;
+        if (StringUtils.hasText(rulesLocation)) {
+            try {
+                initial = compile(readRulesDirectory());
+            } catch (Exception ex) {
+                log.error("Failed to load rules from {}, falling back to classpath rules: {}",
+                        rulesLocation, ex.getMessage());
+            }
+        }
+        if (initial == null) {
+            initial = compile(DroolsConfig.classpathRules());
+        }
+
+        active.set(initial);
+        latestVersion = initial.version();
+        log.info("Rule set {} is live", initial.version());
+    }
+
+    public RuleSet active() {
+        return active.get();
+    }
+
+    /**
+     * The live rule set, held open until {@link #release(RuleSet)}.
+     */
+    public RuleSet acquire() {
+        while (true) {
+            RuleSet ruleSet = active.get();
+            ruleSet.readers().incrementAndGet();
+            // Still live after the increment: a swap from here on sees the reader and
+            // leaves the rule set open. Otherwise it may already be closed, take the new one
+            if (active.get() == ruleSet) {
+                return ruleSet;
+            }
+            release(ruleSet);
+        }
+    }
+
+    public void release(RuleSet ruleSet) {
+        if (ruleSet.readers().decrementAndGet() == 0 && draining.contains(ruleSet)) {
+            disposeDrained();
+        }
+    }
+
+    public RuleMetrics ruleMetrics() {
+        return ruleMetrics;
+    }
+
+    /**
+     * Make a pending rule set live. Must be called between batches so a batch is
+     * always evaluated by a single version.
+     */
+    public void applyPendingSwap() {
+        RuleSet next = pending.getAndSet(null);
+        if (next == null) {
+            return;
+        }
+
+        RuleSet previous = active.getAndSet(next);
+        log.info("Rule set {} is now live, draining {}", next.version(), previous.version());
+        retire(previous);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rules.reload-interval-ms:30000}")
+    public void checkForChanges() {
+        disposeDrained();
+
+        if (!StringUtils.hasText(rulesLocation)) {
+            return;
+        }
+
+        String version = null;
+        try {
+            Map<String, byte[]> sources = readRulesDirectory();
+            version = version(sources);
+            if (version.equals(latestVersion) || version.equals(failedVersion)) {
+                return;
+            }
+
+            log.info("Rule change detected in {}, compiling version {}", rulesLocation, version);
+            RuleSet candidate = compile(sources);
+
+            RuleSet superseded = pending.getAndSet(candidate);
+            if (superseded != null) {
+                // Compiled but never went live
+                retire(superseded);
+            }
+            latestVersion = candidate.version();
+            log.info("Rule set {} compiled, will go live at the next batch", candidate.version());
+        } catch (Exception ex) {
+            failedVersion = version;
+            log.error("Rule set {} failed to compile, keeping {} live: {}",
+                    version, active.get().version(), ex.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        RuleSet next = pending.getAndSet(null);
+        if (next != null) {
+            retire(next);
+        }
+        retire(active.get());
+        draining.forEach(this::dispose);
+        draining.clear();
+    }
+
+    private RuleSet compile(Map<String, byte[]> sources) {
+        String version = version(sources);
+        var kieContainer = DroolsConfig.kieContainer(version, sources);
+        return new RuleSet(version, kieContainer, DroolsConfig.kieSessionPool(kieContainer, ruleMetrics));
+    }
+
+    private void retire(RuleSet ruleSet) {
+        draining.add(ruleSet);
+        disposeDrained();
+    }
+
+    private void disposeDrained() {
+        for (RuleSet ruleSet : draining) {
+            // remove() succeeds once, so a rule set is disposed by one caller only
+            if (ruleSet.readers().get() == 0 && draining.remove(ruleSet)) {
+                dispose(ruleSet);
+            }
+        }
+    }
+
+    private void dispose(RuleSet ruleSet) {
+        try {
+            ruleSet.sessionPool().close();
+            ruleSet.kieContainer().dispose();
+            KieServices.Factory.get().getRepository().removeKieModule(ruleSet.kieContainer().getReleaseId());
+            log.debug("Disposed rule set {}", ruleSet.version());
+        } catch (Exception ex) {
+            log.warn("Failed to dispose rule set {}: {}", ruleSet.version(), ex.getMessage());
+        }
+    }
+
+    private Map<String, byte[]> readRulesDirectory() throws IOException {
+        Map<String, byte[]> sources = new TreeMap<>();
+        try (Stream<Path> files = Files.list(Path.of(rulesLocation))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(".drl")) {
+                    sources.put(file.getFileName().toString(), Files.readAllBytes(file));
+                }
+            }
+        }
+        if (sources.isEmpty()) {
+            throw new IOException("No .drl files found in " + rulesLocation);
+        }
+        return sources;
+    }
+
+    /**
+     * Content hash of the rule files, stable across pods and restarts.
+     */
+    private static String version(Map<String, byte[]> sources) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            new TreeMap<>(sources).forEach((name, content) -> {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update(content);
+            });
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 12);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.pms.validation.service.telemetry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pms.rttm.client.clients.RttmClient;
+import com.pms.rttm.client.dto.DlqEventPayload;
+import com.pms.rttm.client.dto.ErrorEventPayload;
+import com.pms.rttm.client.dto.QueueMetricPayload;
+import com.pms.rttm.client.dto.TradeEventPayload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends RTTM telemetry from one dedicated thread, so a slow or unavailable
+ * RTTM topic never holds up trade processing (the client waits up to
+ * rttm.client.send-timeout-ms per event, with retries).
+ *
+ * Callers only enqueue. The queue is lock-free and bounded by
+ * app.telemetry.capacity: when it is full new events are dropped and counted.
+ * Queue metrics are coalesced instead, only the latest per topic partition is
+ * kept until the sender picks it up. The sender wakes every
+ * app.telemetry.flush-interval-ms and sends what accumulated in batches of up
+ * to app.telemetry.batch-size.
+ *
+ * Events of a DB transaction go through {@link #emitAfterCommit} and are only
+ * queued once it committed; a rolled back batch is replayed and reported then.
+ */
+@Component
+@Slf4j
+public class RttmTelemetryEmitter implements SmartLifecycle {
+
+    private final RttmClient rttmClient;
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+
+    // Events in the queue, reserved before the offer so the bound holds without a lock
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Map<String, QueueMetricPayload> latestQueueMetrics = new ConcurrentHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter coalescedCounter;
+    private final Counter failedCounter;
+
+    @Value("${app.telemetry.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.telemetry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.telemetry.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    private volatile boolean running = false;
+
+    private Thread sender;
+
+    public RttmTelemetryEmitter(RttmClient rttmClient, MeterRegistry meterRegistry) {
+        this.rttmClient = rttmClient;
+
+        sentCounter = Counter.builder("rttm.telemetry.sent")
+                .description("Telemetry events handed to the RTTM client")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("rttm.telemetry.dropped")
+                .description("Telemetry events dropped because the queue was full")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("rttm.telemetry.coalesced")
+                .description("Queue metrics replaced by a newer one before they were sent")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("rttm.telemetry.failed")
+                .description("Telemetry events the RTTM client failed to send")
+                .register(meterRegistry);
+        Gauge.builder("rttm.telemetry.queued", queued, AtomicInteger::get)
+                .description("Telemetry events waiting for the sender")
+                .register(meterRegistry);
+    }
+
+    public void tradeEvent(TradeEventPayload event) {
+        enqueue(event);
+    }
+
+    public void dlqEvent(DlqEventPayload event) {
+        enqueue(event);
+    }
+
+    public void errorEvent(ErrorEventPayload event) {
+        enqueue(event);
+    }
+
+    /**
+     * Latest offsets of a topic partition, replaces one not sent yet.
+     */
+    public void queueMetric(String topic, int partition, QueueMetricPayload metric) {
+        if (latestQueueMetrics.put(topic + ":" + partition, metric) != null) {
+            coalescedCounter.increment();
+        }
+    }
+
+    /**
+     * Queue the trade events once the current transaction commits, right away
+     * when there is none. Discarded on rollback.
+     */
+    public void emitAfterCommit(List<TradeEventPayload> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            events.forEach(this::enqueue);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(RttmTelemetryEmitter.this::enqueue);
+            }
+        });
+    }
+
+    private void enqueue(Object event) {
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            droppedCounter.increment();
+            return;
+        }
+        queue.offer(event);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sender = new Thread(this::loop, "rttm-telemetry-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    private void loop() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running) {
+            drain(batch);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                continue;
+            }
+            send(batch);
+            batch.clear();
+        }
+    }
+
+    private void drain(List<Object> batch) {
+        Iterator<Map.Entry<String, QueueMetricPayload>> metrics = latestQueueMetrics.entrySet().iterator();
+        while (metrics.hasNext() && batch.size() < batchSize) {
+            batch.add(metrics.next().getValue());
+            metrics.remove();
+        }
+
+        Object event;
+        while (batch.size() < batchSize && (event = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(event);
+        }
+    }
+
+    private void send(List<Object> batch) {
+        int failed = 0;
+        String lastError = null;
+        for (Object event : batch) {
+            try {
+                if (event instanceof TradeEventPayload trade) {
+                    rttmClient.sendTradeEvent(trade);
+                } else if (event instanceof DlqEventPayload dlq) {
+                    rttmClient.sendDlqEvent(dlq);
+                } else if (event instanceof ErrorEventPayload error) {
+                    rttmClient.sendErrorEvent(error);
+                } else if (event instanceof QueueMetricPayload metric) {
+                    rttmClient.sendQueueMetric(metric);
+                }
+                sentCounter.increment();
+            } catch (Exception ex) {
+                failed++;
+                lastError = ex.getMessage();
+            }
+        }
+        if (failed > 0) {
+            failedCounter.increment(failed);
+            log.warn("Failed to send {} of {} telemetry events to RTTM: {}", failed, batch.size(), lastError);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (sender != null) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
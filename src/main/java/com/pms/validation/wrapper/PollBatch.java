@@ -2,6 +2,7 @@ package com.pms.validation.wrapper;
 
 import java.util.List;
 
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
 import org.springframework.kafka.support.Acknowledgment;
 
 import com.pms.validation.proto.TradeEventProto;
@@ -20,4 +21,20 @@ public class PollBatch {
     private String topic;
     private List<Long> offsets;
     private String consumerGroup;
+    // Estimated heap held by the trades, see estimateBytes
+    private long estimatedBytes;
+    // Consumer group generation the poll came from, app.pipeline.mode=transactional
+    // commits offsets with it
+    private ConsumerGroupMetadata groupMetadata;
+
+    // Object headers, field references and decoded strings on top of the wire size
+    private static final int PER_TRADE_OVERHEAD_BYTES = 256;
+
+    /**
+     * Rough heap footprint of a decoded trade. getSerializedSize() is memoized by
+     * protobuf, so this is cheap to call on the listener thread.
+     */
+    public static long estimateBytes(TradeEventProto trade) {
+        return trade.getSerializedSize() + PER_TRADE_OVERHEAD_BYTES;
+    }
 }
@@ -0,0 +1,14 @@
+-- Migration: checkpoints and archive tables of the online purge of settled outbox and DLQ rows (OutboxPurgeEngine)
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+CREATE TABLE IF NOT EXISTS validation_purge_checkpoint (
+  table_name VARCHAR(64) PRIMARY KEY,
+  last_id BIGINT NOT NULL,
+  pass_started_at TIMESTAMP NOT NULL,
+  updated_at TIMESTAMP NOT NULL
+);
+
+-- Same columns in the same order, app.outbox.purge.mode=archive moves rows here with INSERT ... SELECT *
+CREATE TABLE IF NOT EXISTS validation_outbox_archive (LIKE validation_outbox);
+CREATE TABLE IF NOT EXISTS validation_invalid_trades_archive (LIKE validation_invalid_trades);
+CREATE TABLE IF NOT EXISTS validation_dlq_entry_archive (LIKE validation_dlq_entry);
@@ -0,0 +1,119 @@
+-- Migration: range-partition validation_outbox and validation_invalid_trades by day of created_at
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- Existing rows are not copied. Each table is renamed to <table>_legacy and
+-- attached as the partition holding everything before a cutover two days
+-- out; new rows go to daily partitions from the cutover on.
+--
+-- Steps 1 and 2 run online without blocking writes. Step 3 takes short
+-- exclusive locks. Run the statements in order, one at a time
+-- (CREATE INDEX CONCURRENTLY cannot run inside a transaction block), and
+-- finish step 3 before the cutover: until then rows at or past it fail the
+-- range check.
+--
+-- Afterwards OutboxPartitionMaintainer creates the upcoming daily partitions.
+-- It detaches and drops partitions past app.outbox.partitions.retention once
+-- they hold no PENDING or IN_FLIGHT rows, the legacy partition included.
+
+-- 1. Cutover and range checks, validated without blocking writes
+
+CREATE TABLE IF NOT EXISTS validation_partition_cutover (
+  table_name VARCHAR(64) PRIMARY KEY,
+  cutover TIMESTAMP NOT NULL
+);
+
+INSERT INTO validation_partition_cutover (table_name, cutover)
+VALUES ('validation_outbox', date_trunc('day', now()) + interval '2 days'),
+       ('validation_invalid_trades', date_trunc('day', now()) + interval '2 days')
+ON CONFLICT (table_name) DO NOTHING;
+
+-- The partition key cannot be null
+UPDATE validation_invalid_trades SET created_at = COALESCE(updated_at, now()) WHERE created_at IS NULL;
+
+DO $$
+DECLARE
+  t TEXT;
+  c TIMESTAMP;
+BEGIN
+  FOR t, c IN SELECT table_name, cutover FROM validation_partition_cutover LOOP
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (created_at IS NOT NULL AND created_at < %L) NOT VALID',
+                   t, t || '_legacy_range', c);
+  END LOOP;
+END $$;
+
+ALTER TABLE validation_outbox VALIDATE CONSTRAINT validation_outbox_legacy_range;
+ALTER TABLE validation_invalid_trades VALIDATE CONSTRAINT validation_invalid_trades_legacy_range;
+
+-- 2. Primary key indexes of the partitioned layout (id, created_at), built online
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS validation_outbox_legacy_pk
+  ON validation_outbox (validation_outbox_id, created_at);
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS validation_invalid_trades_legacy_pk
+  ON validation_invalid_trades (invalid_trade_outbox_id, created_at);
+
+-- 3. Swap in the partitioned tables
+
+BEGIN;
+
+SET LOCAL lock_timeout = '10s';
+
+DO $$
+DECLARE
+  t TEXT;
+  id_column TEXT;
+  c TIMESTAMP;
+  d DATE;
+  suffix TEXT;
+BEGIN
+  FOR t, id_column, c IN
+    SELECT x.table_name, x.id_column, p.cutover
+    FROM (VALUES ('validation_outbox', 'validation_outbox_id'),
+                 ('validation_invalid_trades', 'invalid_trade_outbox_id')) AS x (table_name, id_column)
+    JOIN validation_partition_cutover p ON p.table_name = x.table_name
+  LOOP
+    -- The valid check constraint proves it, no scan
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN created_at SET NOT NULL', t);
+
+    -- Primary key on (id, created_at), as the partitioned parent requires
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I, ADD CONSTRAINT %I PRIMARY KEY USING INDEX %I',
+                   t, t || '_pkey', t || '_legacy_pkey', t || '_legacy_pk');
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', t, t || '_legacy');
+    FOREACH suffix IN ARRAY ARRAY['in_flight', 'pending_created_at', 'pending_portfolio'] LOOP
+      EXECUTE format('ALTER INDEX IF EXISTS %I RENAME TO %I',
+                     'idx_' || t || '_' || suffix, 'idx_' || t || '_legacy_' || suffix);
+    END LOOP;
+    EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trg_' || t || '_notify', t || '_legacy');
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS, PRIMARY KEY (%I, created_at)) '
+                   'PARTITION BY RANGE (created_at)', t, t || '_legacy', id_column);
+
+    -- The sequence would go with the legacy partition once it is dropped
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.%I', t || '_seq', t, id_column);
+
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)',
+                   t, t || '_legacy', c);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', t || '_default', t);
+
+    FOR d IN SELECT generate_series(c::date, c::date + 7, interval '1 day')::date LOOP
+      EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                     t || '_p' || to_char(d, 'YYYYMMDD'), t, d, d + 1);
+    END LOOP;
+
+    -- Created on the parent, the matching legacy indexes are attached rather than rebuilt
+    EXECUTE format('CREATE INDEX %I ON %I (portfolio_id, lease_expires_at) WHERE sent_status = ''IN_FLIGHT''',
+                   'idx_' || t || '_in_flight', t);
+    EXECUTE format('CREATE INDEX %I ON %I (created_at) WHERE sent_status = ''PENDING''',
+                   'idx_' || t || '_pending_created_at', t);
+    EXECUTE format('CREATE INDEX %I ON %I (portfolio_id, created_at) WHERE sent_status = ''PENDING''',
+                   'idx_' || t || '_pending_portfolio', t);
+
+    EXECUTE format('CREATE TRIGGER %I AFTER INSERT ON %I FOR EACH STATEMENT EXECUTE FUNCTION validation_outbox_notify()',
+                   'trg_' || t || '_notify', t);
+  END LOOP;
+END $$;
+
+COMMIT;
+
+DROP TABLE validation_partition_cutover;
@@ -0,0 +1,19 @@
+-- Migration: serialized record value on the outbox rows, written at validation time and sent as is by the dispatcher
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- Nullable without a default, so adding it is a catalog change only. Rows
+-- written before it have no payload and are serialized at dispatch time.
+-- Added on the partitioned parents it reaches every partition; the archive
+-- tables get it too so INSERT ... SELECT * of the purge keeps matching.
+
+ALTER TABLE validation_outbox
+  ADD COLUMN IF NOT EXISTS payload BYTEA;
+
+ALTER TABLE validation_invalid_trades
+  ADD COLUMN IF NOT EXISTS payload BYTEA;
+
+ALTER TABLE validation_outbox_archive
+  ADD COLUMN IF NOT EXISTS payload BYTEA;
+
+ALTER TABLE validation_invalid_trades_archive
+  ADD COLUMN IF NOT EXISTS payload BYTEA;
@@ -0,0 +1,16 @@
+-- Migration: trade id on DLQ entries, so a trade parked by the transactional pipeline is stored once
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- Nullable without a default, a catalog change only; existing entries keep a
+-- NULL trade id and are not constrained. The archive table gets the column
+-- too so INSERT ... SELECT * of the purge keeps matching.
+
+ALTER TABLE validation_dlq_entry
+  ADD COLUMN IF NOT EXISTS trade_id UUID;
+
+ALTER TABLE validation_dlq_entry_archive
+  ADD COLUMN IF NOT EXISTS trade_id UUID;
+
+-- Replays of an aborted batch park the same trade again, ON CONFLICT keeps the first entry
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_validation_dlq_entry_trade_id
+  ON validation_dlq_entry (trade_id) WHERE trade_id IS NOT NULL;
@@ -0,0 +1,27 @@
+-- Migration: change markers used by the in-memory reference data snapshot
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+-- portfolio_investor_details has no timestamp of its own, add one maintained by the database
+ALTER TABLE IF EXISTS portfolio_investor_details
+  ADD COLUMN IF NOT EXISTS updated_at timestamp without time zone NOT NULL DEFAULT now();
+
+CREATE OR REPLACE FUNCTION portfolio_investor_details_touch_updated_at()
+RETURNS trigger AS $$
+BEGIN
+  NEW.updated_at := now();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_portfolio_investor_details_updated_at ON portfolio_investor_details;
+
+CREATE TRIGGER trg_portfolio_investor_details_updated_at
+  BEFORE UPDATE ON portfolio_investor_details
+  FOR EACH ROW EXECUTE FUNCTION portfolio_investor_details_touch_updated_at();
+
+-- Incremental refresh queries filter on updated_at
+CREATE INDEX IF NOT EXISTS idx_portfolio_investor_details_updated_at
+  ON portfolio_investor_details (updated_at);
+
+CREATE INDEX IF NOT EXISTS idx_pms_stocks_updated_at
+  ON pms_stocks (updated_at);
@@ -0,0 +1,5 @@
+-- Migration: index used by batch-scoped symbol lookups (app.reference-data.mode=batch)
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+CREATE INDEX IF NOT EXISTS idx_pms_stocks_symbol
+  ON pms_stocks (symbol);
@@ -0,0 +1,8 @@
+-- Migration: record which rule set version validated each trade
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+ALTER TABLE validation_outbox
+  ADD COLUMN IF NOT EXISTS rule_version VARCHAR(64);
+
+ALTER TABLE validation_invalid_trades
+  ADD COLUMN IF NOT EXISTS rule_version VARCHAR(64);
@@ -0,0 +1,5 @@
+-- Migration: index used by the retention purge of validation_processed_messages (app.idempotency.mode=postgres)
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+CREATE INDEX IF NOT EXISTS idx_validation_processed_messages_processed_at
+  ON validation_processed_messages (processed_at);
@@ -0,0 +1,17 @@
+-- Migration: move the outbox, invalid trade and DLQ ids from BIGSERIAL to sequences incremented by 50 (pooled-lo, allocationSize = 50)
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- The serial sequences are renamed in place, the column defaults follow them.
+-- The next nextval jumps ahead by 50 past the last id handed out, so the ids
+-- allocated in blocks by Hibernate never collide with existing rows. Rows
+-- inserted through the column default (COPY insert mode) take one id per
+-- nextval and skip the rest of the block.
+
+ALTER SEQUENCE IF EXISTS validation_outbox_validation_outbox_id_seq RENAME TO validation_outbox_seq;
+ALTER SEQUENCE validation_outbox_seq INCREMENT BY 50;
+
+ALTER SEQUENCE IF EXISTS validation_invalid_trades_invalid_trade_outbox_id_seq RENAME TO validation_invalid_trades_seq;
+ALTER SEQUENCE validation_invalid_trades_seq INCREMENT BY 50;
+
+ALTER SEQUENCE IF EXISTS validation_dlq_entry_dlq_entry_id_seq RENAME TO validation_dlq_entry_seq;
+ALTER SEQUENCE validation_dlq_entry_seq INCREMENT BY 50;
@@ -0,0 +1,16 @@
+-- Migration: IN_FLIGHT claims with a lease for the outbox dispatchers (claim/send/confirm)
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+
+ALTER TABLE validation_outbox
+  ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+
+ALTER TABLE validation_invalid_trades
+  ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+
+-- Only the few rows in flight are indexed: portfolio lookups of the claim query
+-- and the lease reaper
+CREATE INDEX IF NOT EXISTS idx_validation_outbox_in_flight
+  ON validation_outbox (portfolio_id, lease_expires_at) WHERE sent_status = 'IN_FLIGHT';
+
+CREATE INDEX IF NOT EXISTS idx_validation_invalid_trades_in_flight
+  ON validation_invalid_trades (portfolio_id, lease_expires_at) WHERE sent_status = 'IN_FLIGHT';
@@ -0,0 +1,22 @@
+-- Migration: pg_notify on outbox inserts so the dispatchers wake up instead of sleeping between polls
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- Statement level: a COPY or a multi-row INSERT of a whole batch sends one
+-- notification, and Postgres folds duplicates within a transaction.
+
+CREATE OR REPLACE FUNCTION validation_outbox_notify() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify(TG_TABLE_NAME, '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_validation_outbox_notify ON validation_outbox;
+CREATE TRIGGER trg_validation_outbox_notify
+    AFTER INSERT ON validation_outbox
+    FOR EACH STATEMENT EXECUTE FUNCTION validation_outbox_notify();
+
+DROP TRIGGER IF EXISTS trg_validation_invalid_trades_notify ON validation_invalid_trades;
+CREATE TRIGGER trg_validation_invalid_trades_notify
+    AFTER INSERT ON validation_invalid_trades
+    FOR EACH STATEMENT EXECUTE FUNCTION validation_outbox_notify();
@@ -0,0 +1,17 @@
+-- Migration: partial indexes over the PENDING rows for the SKIP LOCKED outbox claim
+-- Run this manually if you don't have an automated migration tool (Flyway/Liquibase).
+--
+-- (created_at) finds the oldest portfolio groups, (portfolio_id, created_at)
+-- reads one group in order. SENT rows, the bulk of the tables, are not indexed.
+
+CREATE INDEX IF NOT EXISTS idx_validation_outbox_pending_created_at
+  ON validation_outbox (created_at) WHERE sent_status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_validation_outbox_pending_portfolio
+  ON validation_outbox (portfolio_id, created_at) WHERE sent_status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_validation_invalid_trades_pending_created_at
+  ON validation_invalid_trades (created_at) WHERE sent_status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_validation_invalid_trades_pending_portfolio
+  ON validation_invalid_trades (portfolio_id, created_at) WHERE sent_status = 'PENDING';
@@ -0,0 +1,185 @@
+package com.pms.validation.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Checks the binary COPY encoding of each column type against what
+ * PostgreSQL's own send functions produce (numeric_send, timestamp_send,
+ * uuid_send, byteasend), including the edge values a wrong byte would
+ * corrupt.
+ */
+class PgBinaryCopyEncoderTest {
+
+    private static final int HEADER_LENGTH = 11 + 4 + 4;
+
+    private interface Field {
+        void write(PgBinaryCopyEncoder encoder) throws SQLException;
+    }
+
+    @Test
+    void headerAndTrailer() throws SQLException {
+        byte[] stream = copy(encoder -> {
+        });
+
+        assertThat(Arrays.copyOf(stream, 11))
+                .containsExactly('P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0);
+        assertThat(ByteBuffer.wrap(stream, 11, 8).getLong()).isZero();
+        assertThat(Arrays.copyOfRange(stream, stream.length - 2, stream.length)).containsExactly(0xFF, 0xFF);
+    }
+
+    @Test
+    void numericZero() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(BigDecimal.ZERO))).isEqualTo(numeric(0, 0x0000, 0));
+    }
+
+    @Test
+    void numericZeroKeepsScale() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("0.00")))).isEqualTo(numeric(0, 0x0000, 2));
+    }
+
+    @Test
+    void numericTenThousandIsOneDigitOfWeightOne() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("10000")))).isEqualTo(numeric(1, 0x0000, 0, 1));
+    }
+
+    @Test
+    void numericNegativeExponentIsExpanded() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("1E+5")))).isEqualTo(numeric(1, 0x0000, 0, 10));
+    }
+
+    @Test
+    void numericSmallestFraction() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("0.0001")))).isEqualTo(numeric(-1, 0x0000, 4, 1));
+    }
+
+    @Test
+    void numericNegativePrice() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("-123.45"))))
+                .isEqualTo(numeric(0, 0x4000, 2, 123, 4500));
+    }
+
+    @Test
+    void numericScaleAboveFour() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("1.234567"))))
+                .isEqualTo(numeric(0, 0x0000, 6, 1, 2345, 6700));
+    }
+
+    @Test
+    void numericLargeWithInnerZeroGroup() throws SQLException {
+        assertThat(field(e -> e.writeNumeric(new BigDecimal("12300004567.8900"))))
+                .isEqualTo(numeric(2, 0x0000, 4, 123, 0, 4567, 8900));
+    }
+
+    @Test
+    void timestampIsMicrosSincePostgresEpoch() throws SQLException {
+        assertThat(field(e -> e.writeTimestamp(LocalDateTime.of(2000, 1, 1, 0, 0)))).isEqualTo(int8(0));
+        assertThat(field(e -> e.writeTimestamp(LocalDateTime.of(2000, 1, 1, 0, 0, 1, 500_000_000))))
+                .isEqualTo(int8(1_500_000));
+        assertThat(field(e -> e.writeTimestamp(LocalDateTime.of(1999, 12, 31, 23, 59, 59))))
+                .isEqualTo(int8(-1_000_000));
+        assertThat(field(e -> e.writeTimestamp(LocalDateTime.of(2024, 3, 1, 12, 30, 0, 123_456_000))))
+                .isEqualTo(int8(762_611_400_123_456L));
+    }
+
+    @Test
+    void uuidIsSixteenBigEndianBytes() throws SQLException {
+        UUID uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+
+        ByteBuffer expected = ByteBuffer.allocate(20).putInt(16);
+        for (int i = 0; i < 16; i++) {
+            expected.put((byte) (i * 0x11));
+        }
+        assertThat(field(e -> e.writeUuid(uuid))).isEqualTo(expected.array());
+    }
+
+    @Test
+    void textAndByteaAreLengthPrefixed() throws SQLException {
+        assertThat(field(e -> e.writeText("é"))).isEqualTo(ByteBuffer.allocate(6).putInt(2)
+                .put((byte) 0xC3).put((byte) 0xA9).array());
+        assertThat(field(e -> e.writeBytea(new byte[0]))).isEqualTo(ByteBuffer.allocate(4).putInt(0).array());
+        assertThat(field(e -> e.writeLong(-2L))).isEqualTo(int8(-2));
+    }
+
+    @Test
+    void nullColumnsAreMinusOneLength() throws SQLException {
+        byte[] minusOne = ByteBuffer.allocate(4).putInt(-1).array();
+
+        assertThat(field(e -> e.writeNumeric(null))).isEqualTo(minusOne);
+        assertThat(field(e -> e.writeTimestamp(null))).isEqualTo(minusOne);
+        assertThat(field(e -> e.writeUuid(null))).isEqualTo(minusOne);
+        assertThat(field(e -> e.writeText(null))).isEqualTo(minusOne);
+        assertThat(field(e -> e.writeBytea(null))).isEqualTo(minusOne);
+        assertThat(field(e -> e.writeLong(null))).isEqualTo(minusOne);
+    }
+
+    @Test
+    void valuesLargerThanAChunkAreStreamedInOrder() throws SQLException {
+        byte[] large = new byte[200 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+
+        byte[] encoded = field(e -> e.writeBytea(large));
+
+        assertThat(ByteBuffer.wrap(encoded).getInt()).isEqualTo(large.length);
+        assertThat(Arrays.copyOfRange(encoded, 4, encoded.length)).isEqualTo(large);
+    }
+
+    /**
+     * Bytes of one field: the stream of a single row holding it, without the
+     * header, the field count and the trailer.
+     */
+    private static byte[] field(Field field) throws SQLException {
+        byte[] stream = copy(encoder -> {
+            encoder.startRow(1);
+            field.write(encoder);
+        });
+        return Arrays.copyOfRange(stream, HEADER_LENGTH + 2, stream.length - 2);
+    }
+
+    private static byte[] copy(Field rows) throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CopyIn copyIn = mock(CopyIn.class);
+        doAnswer(invocation -> {
+            out.write((byte[]) invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+        PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(copyIn);
+        rows.write(encoder);
+        encoder.finish();
+        return out.toByteArray();
+    }
+
+    private static byte[] numeric(int weight, int sign, int dscale, int... digits) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 + digits.length * 2);
+        buffer.putInt(8 + digits.length * 2);
+        buffer.putShort((short) digits.length);
+        buffer.putShort((short) weight);
+        buffer.putShort((short) sign);
+        buffer.putShort((short) dscale);
+        for (int digit : digits) {
+            buffer.putShort((short) digit);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] int8(long value) {
+        return ByteBuffer.allocate(12).putInt(8).putLong(value).array();
+    }
+}
@@ -0,0 +1,101 @@
+package com.pms.validation.service.domain;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * Redis memory per million DONE idempotency entries, legacy string keys vs the
+ * compact binary keys.
+ *
+ * Needs a scratch Redis, ideally an otherwise idle database since the figure is
+ * the used_memory delta. The keys written are deleted afterwards. Not run by
+ * surefire. Run from the IDE or with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.pms.validation.service.domain.IdempotencyKeyMemoryBenchmark
+ * -Dredis.url=redis://localhost:6379/15 -Dtrades=1000000
+ */
+public class IdempotencyKeyMemoryBenchmark {
+
+    private static final int PIPELINE_DEPTH = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("redis.url", "redis://localhost:6379/15");
+        int trades = Integer.getInteger("trades", 1_000_000);
+
+        RedisClient client = RedisClient.create(url);
+        try (StatefulRedisConnection<byte[], byte[]> connection = client.connect(ByteArrayCodec.INSTANCE)) {
+            RedisAsyncCommands<byte[], byte[]> redis = connection.async();
+
+            for (IdempotencyKeyFormat format : IdempotencyKeyFormat.values()) {
+                long bytes = measure(redis, format, trades);
+                System.out.printf("%-6s %,d trades: %,d bytes total, %.1f bytes/trade, %.1f MiB per million%n",
+                        format, trades, bytes, (double) bytes / trades,
+                        (double) bytes / trades * 1_000_000 / (1024 * 1024));
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static long measure(RedisAsyncCommands<byte[], byte[]> redis, IdempotencyKeyFormat format, int trades)
+            throws Exception {
+        // Same seed per format so both write the same trade ids
+        Random random = new Random(42);
+        List<UUID> tradeIds = new ArrayList<>(trades);
+        for (int i = 0; i < trades; i++) {
+            tradeIds.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        long before = usedMemory(redis);
+
+        SetArgs ttl = SetArgs.Builder.ex(Duration.ofDays(7));
+        List<RedisFuture<?>> pending = new ArrayList<>(PIPELINE_DEPTH);
+        for (UUID tradeId : tradeIds) {
+            pending.add(redis.set(format.key(tradeId), format.doneValue(), ttl));
+            if (pending.size() == PIPELINE_DEPTH) {
+                awaitAll(pending);
+            }
+        }
+        awaitAll(pending);
+
+        long after = usedMemory(redis);
+
+        for (UUID tradeId : tradeIds) {
+            pending.add(redis.del(format.key(tradeId)));
+            if (pending.size() == PIPELINE_DEPTH) {
+                awaitAll(pending);
+            }
+        }
+        awaitAll(pending);
+
+        return after - before;
+    }
+
+    private static long usedMemory(RedisAsyncCommands<byte[], byte[]> redis) throws Exception {
+        String info = redis.info("memory").get(10, TimeUnit.SECONDS);
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith("used_memory:")) {
+                return Long.parseLong(line.substring("used_memory:".length()).trim());
+            }
+        }
+        throw new IllegalStateException("used_memory missing from INFO memory");
+    }
+
+    private static void awaitAll(List<RedisFuture<?>> futures) throws Exception {
+        for (RedisFuture<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        futures.clear();
+    }
+}
@@ -0,0 +1,100 @@
+package com.pms.validation.service.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.dto.ValidationResultDto;
+import com.pms.validation.service.reference.ReferenceData;
+import com.pms.validation.service.rules.RuleSetManager;
+
+/**
+ * Drools vs compiled validation engine on one flush worth of trades.
+ *
+ * Not run by surefire. Run from the IDE or with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.pms.validation.service.domain.ValidationEngineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationEngineBenchmark {
+
+    @Param({ "1", "100", "1000" })
+    private int batchSize;
+
+    private RuleSetManager ruleSetManager;
+
+    private DroolsTradeValidationService drools;
+    private CompiledTradeValidationService compiled;
+
+    private List<TradeDto> batch;
+    private ReferenceData referenceData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Empty location, classpath rules only
+        ruleSetManager = new RuleSetManager("");
+
+        drools = new DroolsTradeValidationService(ruleSetManager);
+        compiled = new CompiledTradeValidationService();
+
+        batch = ValidationEngineConformanceTest.generateCorpus(new Random(1), batchSize);
+
+        List<UUID> portfolios = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+        for (TradeDto trade : batch) {
+            if (trade.getPortfolioId() != null) {
+                portfolios.add(trade.getPortfolioId());
+            }
+            if (trade.getSymbol() != null) {
+                symbols.add(trade.getSymbol());
+            }
+        }
+        referenceData = ReferenceData.of(portfolios, symbols);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ruleSetManager.shutdown();
+    }
+
+    @Benchmark
+    public List<ValidationResultDto> drools() {
+        return drools.validateBatch(batch, referenceData);
+    }
+
+    @Benchmark
+    public List<ValidationResultDto> compiled() {
+        return compiled.validateBatch(batch, referenceData);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ValidationEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,174 @@
+package com.pms.validation.service.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.dto.ValidationResultDto;
+import com.pms.validation.enums.TradeSide;
+import com.pms.validation.service.reference.ReferenceData;
+import com.pms.validation.service.rules.RuleSetManager;
+
+/**
+ * Proves the compiled engine is a drop-in replacement for the Drools engine:
+ * both must return identical error lists, in the same order, for every trade
+ * of a large generated corpus.
+ */
+class ValidationEngineConformanceTest {
+
+    private static final int CORPUS_SIZE = 20_000;
+
+    private static final List<String> KNOWN_SYMBOLS = List.of("AAPL", "MSFT", "GOOGL", "TSLA", "NVDA", "LONGSYMBOL01");
+
+    private static final List<UUID> KNOWN_PORTFOLIOS = new ArrayList<>();
+
+    static {
+        Random random = new Random(99);
+        for (int i = 0; i < 50; i++) {
+            KNOWN_PORTFOLIOS.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+    }
+
+    private static RuleSetManager ruleSetManager;
+
+    private static DroolsTradeValidationService drools;
+    private static CompiledTradeValidationService compiled;
+    private static ReferenceData referenceData;
+
+    @BeforeAll
+    static void setUp() {
+        // Empty location, classpath rules only
+        ruleSetManager = new RuleSetManager("");
+
+        drools = new DroolsTradeValidationService(ruleSetManager);
+        compiled = new CompiledTradeValidationService();
+
+        referenceData = ReferenceData.of(KNOWN_PORTFOLIOS, KNOWN_SYMBOLS);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ruleSetManager.shutdown();
+    }
+
+    @Test
+    void compiledEngineMatchesDroolsOnGeneratedCorpus() {
+        List<TradeDto> corpus = generateCorpus(new Random(42), CORPUS_SIZE);
+
+        List<ValidationResultDto> expected = drools.validateBatch(corpus, referenceData);
+        List<ValidationResultDto> actual = compiled.validateBatch(corpus, referenceData);
+
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < corpus.size(); i++) {
+            assertThat(actual.get(i).getErrors())
+                    .as("errors for trade #%d %s", i, corpus.get(i))
+                    .containsExactlyElementsOf(expected.get(i).getErrors());
+            assertThat(actual.get(i).isValid()).isEqualTo(expected.get(i).isValid());
+        }
+
+        // The corpus must exercise both outcomes to mean anything
+        assertThat(expected).anyMatch(ValidationResultDto::isValid);
+        assertThat(expected).anyMatch(r -> !r.isValid());
+    }
+
+    @Test
+    void singleTradeAndBatchEvaluationAgree() {
+        List<TradeDto> corpus = generateCorpus(new Random(7), 500);
+
+        List<ValidationResultDto> batch = drools.validateBatch(corpus, referenceData);
+        for (int i = 0; i < corpus.size(); i++) {
+            assertThat(drools.validateTrade(corpus.get(i), referenceData).getErrors())
+                    .containsExactlyElementsOf(batch.get(i).getErrors());
+            assertThat(compiled.validateTrade(corpus.get(i), referenceData).getErrors())
+                    .containsExactlyElementsOf(batch.get(i).getErrors());
+        }
+    }
+
+    /**
+     * Mostly valid trades with every field independently broken at a low rate.
+     * Timestamps stay at least a day away from the rule boundaries so both engines
+     * see the same outcome regardless of when they read the clock.
+     */
+    static List<TradeDto> generateCorpus(Random random, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TradeDto> trades = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            TradeDto.TradeDtoBuilder trade = TradeDto.builder()
+                    .tradeId(random.nextInt(50) == 0 ? null : new UUID(random.nextLong(), random.nextLong()))
+                    .portfolioId(pickPortfolio(random))
+                    .symbol(pickSymbol(random))
+                    .side(random.nextInt(40) == 0 ? null : random.nextBoolean() ? TradeSide.BUY : TradeSide.SELL)
+                    .pricePerStock(pickPrice(random))
+                    .quantity(pickQuantity(random));
+
+            int timestampCase = random.nextInt(30);
+            if (timestampCase == 0) {
+                trade.timestamp(null);
+            } else if (timestampCase == 1) {
+                trade.timestamp(now.plusDays(1 + random.nextInt(30)));
+            } else if (timestampCase == 2) {
+                trade.timestamp(now.minusYears(1).minusDays(1 + random.nextInt(300)));
+            } else {
+                trade.timestamp(now.minusDays(1).minusMinutes(random.nextInt(300 * 24 * 60)));
+            }
+
+            trades.add(trade.build());
+        }
+        return trades;
+    }
+
+    private static UUID pickPortfolio(Random random) {
+        int c = random.nextInt(20);
+        if (c == 0) {
+            return null;
+        }
+        if (c == 1) {
+            return UUID.randomUUID();
+        }
+        return KNOWN_PORTFOLIOS.get(random.nextInt(KNOWN_PORTFOLIOS.size()));
+    }
+
+    private static String pickSymbol(Random random) {
+        return switch (random.nextInt(25)) {
+            case 0 -> null;
+            case 1 -> "";
+            case 2 -> "   ";
+            case 3 -> "UNKNOWN";
+            case 4 -> "WAYTOOLONGSYMBOL";
+            default -> KNOWN_SYMBOLS.get(random.nextInt(KNOWN_SYMBOLS.size()));
+        };
+    }
+
+    private static BigDecimal pickPrice(Random random) {
+        return switch (random.nextInt(25)) {
+            case 0 -> null;
+            case 1 -> BigDecimal.ZERO;
+            case 2 -> new BigDecimal("-12.50");
+            case 3 -> new BigDecimal("1000000");
+            case 4 -> new BigDecimal("2500000.1234");
+            default -> BigDecimal.valueOf(1 + random.nextInt(500_000), 2);
+        };
+    }
+
+    private static Long pickQuantity(Random random) {
+        return switch (random.nextInt(25)) {
+            case 0 -> null;
+            case 1 -> 0L;
+            case 2 -> -5L;
+            case 3 -> 1_000_001L;
+            case 4 -> 1_000_000L;
+            default -> 1L + random.nextInt(10_000);
+        };
+    }
+}
@@ -0,0 +1,185 @@
+package com.pms.validation.service.processing;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.pms.validation.entity.ValidationOutboxEntity;
+import com.pms.validation.enums.TradeSide;
+import com.pms.validation.repository.TradeCopyRepository;
+
+/**
+ * Statement round trips and time to persist one flush of outbox rows, the way
+ * processBatch writes them under each scheme:
+ * - returning: one INSERT ... RETURNING per row, ids from the column default and
+ * no JDBC batching (how IDENTITY ids were written before V6; the column is a
+ * sequence default since, so this measures the per-row round trips only)
+ * - sequence: one nextval per 50 rows (pooled-lo) and batched INSERTs rewritten
+ * into multi-row statements (reWriteBatchedInserts)
+ * - copy: one COPY (FORMAT binary) stream (app.persistence.insert-mode=copy)
+ *
+ * Needs a Postgres with the V6 migration applied. Every iteration is rolled
+ * back, only sequence values are consumed: nothing is committed, so no outbox
+ * NOTIFY fires and no dead rows are left in the live table. The commit itself
+ * is not measured, it costs the same for every scheme. Not run by surefire. Run from the
+ * IDE or with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.pms.validation.service.processing.OutboxInsertBenchmark
+ * -Ddb.url=jdbc:postgresql://localhost:5432/pms_db -Ddb.user=postgres -Ddb.password=postgres -Dtrades=1000
+ */
+public class OutboxInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    private static final String INSERT_COLUMNS = """
+            event_id, trade_id, portfolio_id, symbol, side, price_per_stock, quantity, trade_timestamp,
+            sent_status, validation_status, validation_errors, rule_version, created_at, updated_at""";
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/pms_db");
+        int trades = Integer.getInteger("trades", 1000);
+
+        Properties props = new Properties();
+        props.setProperty("user", System.getProperty("db.user", "postgres"));
+        props.setProperty("password", System.getProperty("db.password", "postgres"));
+        props.setProperty("reWriteBatchedInserts", "true");
+
+        List<ValidationOutboxEntity> rows = rows(trades);
+
+        try (Connection connection = DriverManager.getConnection(url, props)) {
+            connection.setAutoCommit(false);
+            run("per-row INSERT ... RETURNING", connection, rows, OutboxInsertBenchmark::returning);
+            run("sequence", connection, rows, OutboxInsertBenchmark::sequence);
+            run("copy", connection, rows, OutboxInsertBenchmark::copy);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Scheme {
+        // Returns the number of statement round trips
+        int insert(Connection connection, List<ValidationOutboxEntity> rows) throws Exception;
+    }
+
+    private static void run(String name, Connection connection, List<ValidationOutboxEntity> rows, Scheme scheme)
+            throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            scheme.insert(connection, rows);
+            connection.rollback();
+        }
+
+        long total = 0;
+        int roundTrips = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            roundTrips = scheme.insert(connection, rows);
+            total += System.nanoTime() - start;
+            connection.rollback();
+        }
+
+        System.out.printf("%-28s %,d rows: %,d round trips, %.2f ms per flush%n",
+                name, rows.size(), roundTrips, total / 1e6 / ITERATIONS);
+    }
+
+    private static int returning(Connection connection, List<ValidationOutboxEntity> rows) throws Exception {
+        String sql = "INSERT INTO validation_outbox (" + INSERT_COLUMNS
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING validation_outbox_id";
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (ValidationOutboxEntity row : rows) {
+                bind(insert, 1, row);
+                try (ResultSet rs = insert.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    private static int sequence(Connection connection, List<ValidationOutboxEntity> rows) throws Exception {
+        String sql = "INSERT INTO validation_outbox (validation_outbox_id, " + INSERT_COLUMNS
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int roundTrips = 0;
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('validation_outbox_seq')");
+                PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int from = 0; from < rows.size(); from += ALLOCATION_SIZE) {
+                long lo;
+                try (ResultSet rs = nextval.executeQuery()) {
+                    rs.next();
+                    lo = rs.getLong(1);
+                }
+                roundTrips++;
+
+                int to = Math.min(from + ALLOCATION_SIZE, rows.size());
+                for (int i = from; i < to; i++) {
+                    insert.setLong(1, lo + (i - from));
+                    bind(insert, 2, rows.get(i));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                roundTrips++;
+            }
+        }
+        return roundTrips;
+    }
+
+    private static int copy(Connection connection, List<ValidationOutboxEntity> rows) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        new TradeCopyRepository(jdbcTemplate).copyOutbox(rows);
+        return 1;
+    }
+
+    private static void bind(PreparedStatement ps, int first, ValidationOutboxEntity row) throws Exception {
+        int i = first;
+        ps.setObject(i++, row.getEventId());
+        ps.setObject(i++, row.getTradeId());
+        ps.setObject(i++, row.getPortfolioId());
+        ps.setString(i++, row.getSymbol());
+        ps.setString(i++, row.getSide().name());
+        ps.setBigDecimal(i++, row.getPricePerStock());
+        ps.setLong(i++, row.getQuantity());
+        ps.setTimestamp(i++, Timestamp.valueOf(row.getTradeTimestamp()));
+        ps.setString(i++, row.getSentStatus());
+        ps.setString(i++, row.getValidationStatus());
+        ps.setString(i++, row.getValidationErrors());
+        ps.setString(i++, row.getRuleVersion());
+        ps.setTimestamp(i++, Timestamp.valueOf(row.getCreatedAt()));
+        ps.setTimestamp(i, Timestamp.valueOf(row.getUpdatedAt()));
+    }
+
+    private static List<ValidationOutboxEntity> rows(int trades) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<ValidationOutboxEntity> rows = new ArrayList<>(trades);
+        for (int i = 0; i < trades; i++) {
+            rows.add(ValidationOutboxEntity.builder()
+                    .eventId(UUID.randomUUID())
+                    .tradeId(UUID.randomUUID())
+                    .portfolioId(new UUID(0, random.nextInt(100)))
+                    .symbol("SYM" + random.nextInt(500))
+                    .side(random.nextBoolean() ? TradeSide.BUY : TradeSide.SELL)
+                    .pricePerStock(BigDecimal.valueOf(random.nextInt(1_000_000), 4))
+                    .quantity((long) random.nextInt(1000) + 1)
+                    .tradeTimestamp(now)
+                    .sentStatus("PENDING")
+                    .validationStatus("VALID")
+                    .ruleVersion("benchmark")
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        return rows;
+    }
+}
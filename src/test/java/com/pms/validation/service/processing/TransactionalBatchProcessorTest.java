@@ -0,0 +1,519 @@
+package com.pms.validation.service.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pms.validation.dto.TradeDto;
+import com.pms.validation.entity.ValidationOutboxEntity;
+import com.pms.validation.mapper.ProtoDTOMapper;
+import com.pms.validation.proto.TradeEventProto;
+import com.pms.validation.repository.DlqRepository;
+import com.pms.validation.service.outbox.OutboxPayloadSerializer;
+import com.pms.validation.service.reference.ReferenceData;
+import com.pms.validation.service.reference.ReferenceDataResolver;
+import com.pms.validation.service.telemetry.RttmTelemetryEmitter;
+import com.pms.validation.wrapper.PollBatch;
+
+import io.confluent.kafka.serializers.protobuf.KafkaProtobufDeserializer;
+import io.confluent.kafka.serializers.protobuf.KafkaProtobufSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * ValidationBatchProcessor in app.pipeline.mode=transactional against an
+ * embedded broker, with the real processBatchTransactional and publisher and
+ * only the rules mocked (every trade is valid and forwarded as is):
+ *
+ * - a flush that crashes before its commit goes back to the retries, and the
+ * pod that takes over replays it without duplicates;
+ * - a revoke while a flush runs waits for that flush, which commits with the
+ * generation it polled in, and drops the trades buffered behind it;
+ * - a flush holding the group metadata of a consumer that has left the group
+ * cannot commit over the new owner.
+ *
+ * Flushes run on another thread than the polls where it matters, so the group
+ * metadata reaches them through the processor as in production.
+ */
+@EmbeddedKafka(partitions = 2, topics = {
+        TransactionalBatchProcessorTest.CRASH_IN, TransactionalBatchProcessorTest.CRASH_OUT,
+        TransactionalBatchProcessorTest.REVOKE_IN, TransactionalBatchProcessorTest.REVOKE_OUT,
+        TransactionalBatchProcessorTest.ZOMBIE_IN, TransactionalBatchProcessorTest.ZOMBIE_OUT },
+        brokerProperties = {
+                "transaction.state.log.replication.factor=1",
+                "transaction.state.log.min.isr=1",
+                "group.initial.rebalance.delay.ms=0" })
+class TransactionalBatchProcessorTest {
+
+    static final String CRASH_IN = "batch-crash-in";
+    static final String CRASH_OUT = "batch-crash-out";
+    static final String REVOKE_IN = "batch-revoke-in";
+    static final String REVOKE_OUT = "batch-revoke-out";
+    static final String ZOMBIE_IN = "batch-zombie-in";
+    static final String ZOMBIE_OUT = "batch-zombie-out";
+
+    private static final String SCHEMA_REGISTRY_URL = "mock://batch-processor-test";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(10);
+
+    private EmbeddedKafkaBroker broker;
+
+    private DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+
+    private ControlledPublisher publisher;
+
+    private ValidationBatchProcessingService service;
+
+    @BeforeEach
+    void setUp() {
+        broker = EmbeddedKafkaCondition.getBroker();
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        producerFactory = new DefaultKafkaProducerFactory<>(props);
+        producerFactory.setTransactionIdPrefix("batch-test-" + UUID.randomUUID() + "-");
+        publisher = new ControlledPublisher(new KafkaTemplate<>(producerFactory));
+
+        ValidationCore validationCore = mock(ValidationCore.class);
+        when(validationCore.evaluateBatch(anyList(), any())).thenAnswer(invocation -> {
+            List<TradeDto> trades = invocation.getArgument(0);
+            List<ValidationDecision> decisions = new ArrayList<>();
+            for (TradeDto trade : trades) {
+                ValidationOutboxEntity outbox = ValidationOutboxEntity.builder()
+                        .eventId(UUID.randomUUID())
+                        .tradeId(trade.getTradeId())
+                        .portfolioId(trade.getPortfolioId())
+                        .validationStatus("VALID")
+                        .build();
+                outbox.setPayload(ProtoDTOMapper.toProto(trade).toByteArray());
+                decisions.add(new ValidationDecision(outbox, null));
+            }
+            return decisions;
+        });
+        ReferenceDataResolver referenceDataResolver = mock(ReferenceDataResolver.class);
+        when(referenceDataResolver.resolve(any())).thenReturn(ReferenceData.EMPTY);
+
+        service = new ValidationBatchProcessingService();
+        ReflectionTestUtils.setField(service, "validationCore", validationCore);
+        ReflectionTestUtils.setField(service, "referenceDataResolver", referenceDataResolver);
+        ReflectionTestUtils.setField(service, "transactionalPublisher", publisher);
+        ReflectionTestUtils.setField(service, "payloadSerializer", mock(OutboxPayloadSerializer.class));
+        ReflectionTestUtils.setField(service, "dlqRepository", mock(DlqRepository.class));
+        ReflectionTestUtils.setField(service, "telemetry", mock(RttmTelemetryEmitter.class));
+        ReflectionTestUtils.setField(service, "serviceName", "validation");
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerFactory.destroy();
+    }
+
+    @Test
+    void crashBeforeCommitIsReplayedWithoutDuplicates() {
+        Set<String> tradeIds = produceTrades(CRASH_IN, 20);
+        String group = "batch-crash-" + UUID.randomUUID();
+        outputTo(CRASH_OUT);
+
+        ValidationBatchProcessor first = processor();
+        try (KafkaConsumer<String, TradeEventProto> consumer = consumer(group, 5)) {
+            consumer.subscribe(List.of(CRASH_IN), discardingRevoked(first));
+            assertThat(process(first, consumer)).isPositive();
+
+            // The next flush sends its results but the pod dies before the commit
+            publisher.crashNextPublish.set(true);
+            first.enqueue(pollBatch(consumer));
+            assertThatThrownBy(() -> first.flushBatch(worker(first)))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(worker(first).getRetries()).isNotEmpty();
+        }
+
+        // The replacement resumes from the committed offsets
+        ValidationBatchProcessor second = processor();
+        try (KafkaConsumer<String, TradeEventProto> consumer = consumer(group, 5)) {
+            consumer.subscribe(List.of(CRASH_IN), discardingRevoked(second));
+            while (process(second, consumer) > 0) {
+                // until the topic is drained
+            }
+        }
+
+        List<String> committed = readTradeIds(CRASH_OUT, "read_committed");
+        assertThat(committed).hasSize(tradeIds.size());
+        assertThat(new HashSet<>(committed)).isEqualTo(tradeIds);
+
+        // The aborted sends did reach the log, read_committed consumers just never see them
+        assertThat(readTradeIds(CRASH_OUT, "read_uncommitted").size()).isGreaterThan(tradeIds.size());
+    }
+
+    @Test
+    void revokeWaitsForTheRunningFlushAndDropsWhatIsBuffered() throws Exception {
+        Set<String> tradeIds = produceTrades(REVOKE_IN, 20);
+        String group = "batch-revoke-" + UUID.randomUUID();
+        outputTo(REVOKE_OUT);
+
+        ValidationBatchProcessor first = processor();
+        ValidationBatchProcessor second = processor();
+
+        // The first flush stops inside publish until the revoke starts
+        CountDownLatch inPublish = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        publisher.beforeNextPublish.set(() -> {
+            inPublish.countDown();
+            await(proceed);
+        });
+
+        AtomicInteger commitsWhenRevoked = new AtomicInteger(-1);
+
+        KafkaConsumer<String, TradeEventProto> leaving = consumer(group, 5);
+        leaving.subscribe(List.of(REVOKE_IN), new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                proceed.countDown();
+                first.discardRevoked(partitions);
+                commitsWhenRevoked.compareAndSet(-1, publisher.commits.get());
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+        });
+
+        PollBatch flushed = pollBatch(leaving);
+        first.enqueue(flushed);
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> first.flushBatch(worker(first)));
+        assertThat(inPublish.await(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+
+        // Buffered behind the running flush
+        first.enqueue(pollBatch(leaving));
+        assertThat(worker(first).isEmpty()).isFalse();
+
+        try (KafkaConsumer<String, TradeEventProto> joining = consumer(group, 5)) {
+            joining.subscribe(List.of(REVOKE_IN), discardingRevoked(second));
+
+            // Both poll until the rebalance completes. What the leaving consumer fetches
+            // meanwhile is never buffered, its offsets stay uncommitted
+            long deadline = System.currentTimeMillis() + POLL_TIMEOUT.toMillis();
+            while (joining.assignment().isEmpty() && System.currentTimeMillis() < deadline) {
+                process(second, joining, Duration.ofMillis(100));
+                leaving.poll(Duration.ofMillis(100));
+            }
+            assertThat(joining.assignment()).isNotEmpty();
+
+            // The flush committed with the generation it polled in, before the revoke returned
+            flush.get(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            assertThat(commitsWhenRevoked).hasValue(1);
+            assertThat(readTradeIds(REVOKE_OUT, "read_committed")).containsAll(tradeIdsOf(flushed));
+            assertThat(worker(first).isEmpty()).isTrue();
+
+            leaving.close();
+            while (process(second, joining) > 0) {
+                // until the topic is drained
+            }
+        }
+
+        List<String> committed = readTradeIds(REVOKE_OUT, "read_committed");
+        assertThat(committed).hasSize(tradeIds.size());
+        assertThat(new HashSet<>(committed)).isEqualTo(tradeIds);
+    }
+
+    @Test
+    void flushWithStaleGroupMetadataCannotCommit() {
+        Set<String> tradeIds = produceTrades(ZOMBIE_IN, 10);
+        String group = "batch-zombie-" + UUID.randomUUID();
+        outputTo(ZOMBIE_OUT);
+
+        // A pod stalled past its session timeout: it never runs a revoke callback and
+        // still holds the polled trades with the generation they came from
+        ValidationBatchProcessor zombie = processor();
+        KafkaConsumer<String, TradeEventProto> zombieConsumer = consumer(group, 100);
+        zombieConsumer.subscribe(List.of(ZOMBIE_IN));
+        zombie.enqueue(pollBatch(zombieConsumer));
+        zombieConsumer.close();
+
+        ValidationBatchProcessor owner = processor();
+        try (KafkaConsumer<String, TradeEventProto> consumer = consumer(group, 100)) {
+            consumer.subscribe(List.of(ZOMBIE_IN), discardingRevoked(owner));
+            while (process(owner, consumer) > 0) {
+                // until the topic is drained
+            }
+        }
+
+        assertThatThrownBy(() -> zombie.flushBatch(worker(zombie))).isInstanceOf(RuntimeException.class);
+        assertThat(worker(zombie).getRetries()).isNotEmpty();
+
+        List<String> committed = readTradeIds(ZOMBIE_OUT, "read_committed");
+        assertThat(committed).hasSize(tradeIds.size());
+        assertThat(new HashSet<>(committed)).isEqualTo(tradeIds);
+    }
+
+    /**
+     * The publisher, which can stop before a publish or send the records and
+     * die before the commit.
+     */
+    private static class ControlledPublisher extends TransactionalResultPublisher {
+
+        private final KafkaTemplate<String, byte[]> template;
+
+        final AtomicBoolean crashNextPublish = new AtomicBoolean();
+
+        // Publishes committed so far
+        final AtomicInteger commits = new AtomicInteger();
+
+        final AtomicReference<Runnable> beforeNextPublish = new AtomicReference<>();
+
+        ControlledPublisher(KafkaTemplate<String, byte[]> template) {
+            super(template);
+            this.template = template;
+        }
+
+        @Override
+        public void publish(List<ProducerRecord<String, byte[]>> records,
+                Map<TopicPartition, OffsetAndMetadata> offsets, ConsumerGroupMetadata groupMetadata) {
+            Runnable before = beforeNextPublish.getAndSet(null);
+            if (before != null) {
+                before.run();
+            }
+            if (!crashNextPublish.getAndSet(false)) {
+                super.publish(records, offsets, groupMetadata);
+                commits.incrementAndGet();
+                return;
+            }
+            template.executeInTransaction(operations -> {
+                for (ProducerRecord<String, byte[]> record : records) {
+                    operations.send(record);
+                }
+                throw new IllegalStateException("crash before commit");
+            });
+        }
+    }
+
+    private void outputTo(String topic) {
+        ReflectionTestUtils.setField(service, "validTradesTopic", topic);
+        ReflectionTestUtils.setField(service, "invalidTradesTopic", topic);
+    }
+
+    private ValidationBatchProcessor processor() {
+        ValidationBatchProcessor processor = new ValidationBatchProcessor();
+        ReflectionTestUtils.setField(processor, "kafkaListenerEndpointRegistry", new KafkaListenerEndpointRegistry());
+        ReflectionTestUtils.setField(processor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(processor, "validationBatchProcessingService", service);
+        ReflectionTestUtils.setField(processor, "pipelineMode", "transactional");
+        ReflectionTestUtils.setField(processor, "BATCH_SIZE", 1000);
+        ReflectionTestUtils.setField(processor, "totalBufferCapacity", 25000);
+        ReflectionTestUtils.setField(processor, "totalBufferBytes", 64L * 1024 * 1024);
+        ReflectionTestUtils.setField(processor, "configuredWorkers", 1);
+        processor.initWorkers();
+        return processor;
+    }
+
+    private static ValidationWorker worker(ValidationBatchProcessor processor) {
+        return ((ValidationWorker[]) ReflectionTestUtils.getField(processor, "workers"))[0];
+    }
+
+    /**
+     * What the listener container does in transactional mode.
+     */
+    private static ConsumerRebalanceListener discardingRevoked(ValidationBatchProcessor processor) {
+        return new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                processor.discardRevoked(partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            }
+
+            @Override
+            public void onPartitionsLost(Collection<TopicPartition> partitions) {
+                processor.discardRevoked(partitions);
+            }
+        };
+    }
+
+    /**
+     * One poll buffered and flushed, returns the number of trades committed.
+     */
+    private int process(ValidationBatchProcessor processor, KafkaConsumer<String, TradeEventProto> consumer) {
+        PollBatch poll = pollBatch(consumer);
+        if (poll.getTradeProtos().isEmpty()) {
+            return 0;
+        }
+        processor.enqueue(poll);
+        processor.flushBatch(worker(processor));
+        return poll.getTradeProtos().size();
+    }
+
+    private void process(ValidationBatchProcessor processor, KafkaConsumer<String, TradeEventProto> consumer,
+            Duration timeout) {
+        PollBatch poll = toPollBatch(consumer.poll(timeout), consumer);
+        if (!poll.getTradeProtos().isEmpty()) {
+            processor.enqueue(poll);
+            processor.flushBatch(worker(processor));
+        }
+    }
+
+    private static PollBatch pollBatch(KafkaConsumer<String, TradeEventProto> consumer) {
+        long deadline = System.currentTimeMillis() + POLL_TIMEOUT.toMillis();
+        ConsumerRecords<String, TradeEventProto> records;
+        do {
+            records = consumer.poll(Duration.ofMillis(500));
+        } while (records.isEmpty() && System.currentTimeMillis() < deadline);
+        return toPollBatch(records, consumer);
+    }
+
+    /**
+     * As KafkaConsumerService builds it from a poll.
+     */
+    private static PollBatch toPollBatch(ConsumerRecords<String, TradeEventProto> records,
+            KafkaConsumer<String, TradeEventProto> consumer) {
+        List<TradeEventProto> trades = new ArrayList<>();
+        List<Integer> partitions = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        String topic = null;
+        long estimatedBytes = 0;
+        for (ConsumerRecord<String, TradeEventProto> record : records) {
+            trades.add(record.value());
+            estimatedBytes += PollBatch.estimateBytes(record.value());
+            partitions.add(record.partition());
+            offsets.add(record.offset());
+            topic = record.topic();
+        }
+        return new PollBatch(trades, null, partitions, topic, offsets, consumer.groupMetadata().groupId(),
+                estimatedBytes, consumer.groupMetadata());
+    }
+
+    private static List<String> tradeIdsOf(PollBatch poll) {
+        return poll.getTradeProtos().stream().map(TradeEventProto::getTradeId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Set<String> produceTrades(String topic, int count) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+
+        Set<String> tradeIds = new HashSet<>();
+        try (KafkaProtobufSerializer<TradeEventProto> serializer = new KafkaProtobufSerializer<>();
+                KafkaProducer<String, byte[]> producer = new KafkaProducer<>(props, new StringSerializer(),
+                        new ByteArraySerializer())) {
+            serializer.configure(Map.of("schema.registry.url", SCHEMA_REGISTRY_URL), false);
+            for (int i = 0; i < count; i++) {
+                String portfolioId = UUID.randomUUID().toString();
+                TradeEventProto trade = TradeEventProto.newBuilder()
+                        .setTradeId(UUID.randomUUID().toString())
+                        .setPortfolioId(portfolioId)
+                        .setSymbol("AAPL")
+                        .setSide("BUY")
+                        .setPricePerStock(100.0)
+                        .setQuantity(10)
+                        .build();
+                producer.send(new ProducerRecord<>(topic, portfolioId, serializer.serialize(topic, trade)));
+                tradeIds.add(trade.getTradeId());
+            }
+            producer.flush();
+        }
+        return tradeIds;
+    }
+
+    private List<String> readTradeIds(String topic, String isolationLevel) {
+        List<String> tradeIds = new ArrayList<>();
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "batch-verify-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, isolationLevel);
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props, new StringDeserializer(),
+                new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(topic));
+
+            // Until nothing new arrives for a few polls
+            int idlePolls = 0;
+            while (idlePolls < 6) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(500));
+                idlePolls = records.isEmpty() ? idlePolls + 1 : 0;
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    tradeIds.add(parse(record.value()).getTradeId());
+                }
+            }
+        }
+        return tradeIds;
+    }
+
+    private static TradeEventProto parse(byte[] value) {
+        try {
+            return TradeEventProto.parseFrom(value);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private KafkaConsumer<String, TradeEventProto> consumer(String group, int maxPollRecords) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, group);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Rebalances are noticed within a few polls
+        props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 100);
+
+        KafkaProtobufDeserializer<TradeEventProto> deserializer = new KafkaProtobufDeserializer<>();
+        deserializer.configure(Map.of("schema.registry.url", SCHEMA_REGISTRY_URL,
+                "specific.protobuf.value.type", TradeEventProto.class.getName()), false);
+        return new KafkaConsumer<>(props, new StringDeserializer(), deserializer);
+    }
+}